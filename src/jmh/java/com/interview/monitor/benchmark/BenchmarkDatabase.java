@@ -0,0 +1,104 @@
+package com.interview.monitor.benchmark;
+
+import com.interview.monitor.adapters.outbound.db.DuckDbCityRepository;
+import com.interview.monitor.adapters.outbound.db.DuckDbConnectionManager;
+import com.interview.monitor.adapters.outbound.db.DuckDbDataSource;
+import com.interview.monitor.adapters.outbound.db.DuckDbMeasurementRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * DuckDB database file wired to the production repositories, without starting the Spring context.
+ * The schema is created from the same migration scripts Flyway applies.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    private static final String MIGRATIONS = "classpath:db/migration/V*.sql";
+
+    private final DuckDbDataSource duckDbDataSource;
+    private final HikariDataSource dataSource;
+    private final ExecutorService callExecutor;
+    private final JdbcTemplate jdbcTemplate;
+    private final DuckDbMeasurementRepository measurementRepository;
+    private final DuckDbCityRepository cityRepository;
+
+    private BenchmarkDatabase(Path file) throws SQLException {
+        this.duckDbDataSource = new DuckDbDataSource("jdbc:duckdb:" + file.toAbsolutePath());
+        this.dataSource = new HikariDataSource();
+        dataSource.setDataSource(duckDbDataSource);
+        dataSource.setPoolName("benchmark");
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Benchmarks run on platform threads, which always call DuckDB directly
+        this.callExecutor = Executors.newSingleThreadExecutor();
+        var connectionManager = new DuckDbConnectionManager(dataSource, callExecutor);
+        this.measurementRepository = new DuckDbMeasurementRepository(connectionManager, Clock.systemDefaultZone());
+        this.cityRepository = new DuckDbCityRepository(connectionManager);
+    }
+
+    /**
+     * Opens the database, creating the file and its schema when it doesn't exist yet.
+     */
+    static BenchmarkDatabase open(Path file) throws IOException, SQLException {
+        boolean exists = Files.exists(file);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        var database = new BenchmarkDatabase(file);
+        if (!exists) {
+            database.migrate();
+        }
+        return database;
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    DuckDbMeasurementRepository measurementRepository() {
+        return measurementRepository;
+    }
+
+    DuckDbCityRepository cityRepository() {
+        return cityRepository;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        callExecutor.shutdown();
+        dataSource.close();
+        duckDbDataSource.close();
+    }
+
+    private void migrate() throws IOException {
+        Resource[] migrations = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS);
+        List<Resource> ordered = Arrays.stream(migrations)
+                .sorted(Comparator.comparing(BenchmarkDatabase::version, BenchmarkDatabase::compareVersions))
+                .toList();
+        for (Resource migration : ordered) {
+            jdbcTemplate.execute(migration.getContentAsString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int[] version(Resource migration) {
+        // V1.1.0__description.sql
+        String version = migration.getFilename().substring(1, migration.getFilename().indexOf("__"));
+        return Arrays.stream(version.split("[._]")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static int compareVersions(int[] first, int[] second) {
+        return Arrays.compare(first, second);
+    }
+}
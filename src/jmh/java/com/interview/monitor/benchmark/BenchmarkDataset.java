@@ -0,0 +1,67 @@
+package com.interview.monitor.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Generated measurements spread evenly over the last 14 months, across {@value #CITIES} cities in {@value #REGIONS}
+ * regions with {@value #SENSORS_PER_CITY} sensors each. Every dataset is generated once into 'target/benchmark-data'
+ * and reused by later runs.
+ */
+final class BenchmarkDataset {
+    static final int CITIES = 200;
+    static final int REGIONS = 16;
+    static final int SENSORS_PER_CITY = 10;
+    static final String FIRST_CITY_NAME = DatasetGenerator.CITY_NAME_PREFIX + 0;
+
+    private static final Path DATA_DIR = Path.of("target", "benchmark-data");
+    private static final Duration SPAN = Duration.ofDays(14 * 31);
+
+    private BenchmarkDataset() {}
+
+    /**
+     * Opens the dataset with the given number of measurements, generating it first when needed.
+     */
+    static BenchmarkDatabase open(long rows) throws IOException, SQLException {
+        Path file = DATA_DIR.resolve("generated-%d.duckdb".formatted(rows));
+        if (Files.notExists(file)) {
+            // Generated under a temporary name, so an interrupted run doesn't leave a partial dataset behind
+            Path partial = DATA_DIR.resolve(file.getFileName() + ".partial");
+            Files.deleteIfExists(partial);
+            new DatasetGenerator(settings(rows, partial)).generate();
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return BenchmarkDatabase.open(file);
+    }
+
+    static void insertCities(JdbcTemplate jdbcTemplate) {
+        new DatasetGenerator(settings(CITIES * SENSORS_PER_CITY, null)).insertCities(jdbcTemplate);
+    }
+
+    static UUID firstCityId(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT id FROM cities WHERE name = ?", UUID.class, FIRST_CITY_NAME);
+    }
+
+    static UUID firstCityRegionId(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT region_id FROM cities WHERE name = ?", UUID.class, FIRST_CITY_NAME);
+    }
+
+    private static DatasetGenerator.Settings settings(long rows, Path output) {
+        int sensors = CITIES * SENSORS_PER_CITY;
+        long readingsPerSensor = Math.max(1, rows / sensors);
+        Duration interval = SPAN.dividedBy(readingsPerSensor);
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        return new DatasetGenerator.Settings(CITIES, REGIONS, SENSORS_PER_CITY,
+                to.minus(interval.multipliedBy(readingsPerSensor)), to, interval,
+                DatasetGenerator.Profile.DAILY, 0.3, output, Runtime.getRuntime().availableProcessors(), null);
+    }
+}
@@ -0,0 +1,298 @@
+package com.interview.monitor.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Generates synthetic measurements of a number of cities and sensors, taken at a fixed interval over a date range.
+ * Rows are generated by DuckDB itself, which spreads the work across its threads and streams the result into
+ * the measurements table of a database file or into a Parquet file, so memory use doesn't grow with the dataset.
+ * <p>
+ * Run with 'mvn test-compile exec:java@generate-dataset -Pbenchmark -Dexec.args="..."', passing options as
+ * '--name=value', e.g. '--cities=500 --sensors-per-city=20 --from=2025-01-01T00:00 --to=2026-03-01T00:00
+ * --interval=PT5M --profile=DAILY --output=target/measurements.parquet'.
+ */
+@Slf4j
+public class DatasetGenerator {
+    static final String CITY_NAME_PREFIX = "Generated city ";
+
+    private static final long CHUNK_ROWS = 10_000_000;
+
+    private static final String INSERT_CITIES_SQL = """
+            INSERT INTO cities (id, name, country, region, region_id)
+            SELECT
+                md5('city-' || i)::UUID,
+                '%1$s' || i,
+                'Generated country',
+                'Generated region ' || (i %% %2$d),
+                md5('region-' || (i %% %2$d))::UUID
+            FROM range(%3$d) r(i)
+            ON CONFLICT DO NOTHING
+            """;
+
+    /**
+     * Readings of every sensor in the given range of reading numbers, sensor i belongs to city i % cities.
+     * Values follow the base value of the profile, scaled by its shape and the random noise.
+     */
+    private static final String READINGS_SQL = """
+            WITH readings AS (
+                SELECT
+                    s.sensor,
+                    k.reading,
+                    TIMESTAMP '%1$s' + to_microseconds(k.reading * %2$d) AS timestamp
+                FROM range(%3$d) s(sensor), range(%4$d, %5$d) k(reading)
+            )
+            SELECT
+                %6$s AS id,
+                md5('sensor-' || sensor)::UUID AS sensor_id,
+                md5('city-' || (sensor %% %7$d))::UUID AS city_id,
+                %8$s AS pm10,
+                %9$s AS co,
+                %10$s AS no2,
+                timestamp
+            FROM readings
+            """;
+
+    private static final String VALUE_SQL = "round(greatest(0, %s * (%s) * (1 + %s * (2 * random() - 1))), 2)::DECIMAL(10, 2)";
+
+    private static final String REBUILD_MONTHLY_STATS_SQL = """
+            INSERT OR REPLACE INTO city_monthly_stats
+            SELECT
+                city_id,
+                DATE_TRUNC('month', timestamp)::DATE AS month,
+                COUNT(*),
+                MIN(pm10), MAX(pm10), SUM(pm10),
+                MIN(co), MAX(co), SUM(co),
+                MIN(no2), MAX(no2), SUM(no2),
+                BIT_OR(1::BIGINT << (day(timestamp) - 1))
+            FROM measurements
+            GROUP BY ALL
+            """;
+
+    private final Settings settings;
+
+    public DatasetGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        Settings settings = Settings.parse(args);
+        log.info("Generating %d measurements: %s".formatted(settings.rows(), settings));
+        long start = System.nanoTime();
+
+        new DatasetGenerator(settings).generate();
+
+        log.info("Generated %d measurements in %ds".formatted(
+                settings.rows(), Duration.ofNanos(System.nanoTime() - start).toSeconds()));
+    }
+
+    public void generate() throws IOException, SQLException {
+        Files.createDirectories(settings.output().toAbsolutePath().getParent());
+        if (settings.output().getFileName().toString().endsWith(".parquet")) {
+            generateParquet();
+        } else {
+            try (var database = BenchmarkDatabase.open(settings.output())) {
+                generateInto(database.jdbcTemplate());
+            }
+        }
+    }
+
+    /**
+     * Inserts the generated cities, skipping the ones which already exist.
+     */
+    void insertCities(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute(INSERT_CITIES_SQL.formatted(CITY_NAME_PREFIX, settings.regions(), settings.cities()));
+    }
+
+    /**
+     * Appends the cities and their measurements to a database with the application schema, split into chunks
+     * of about {@value #CHUNK_ROWS} rows so a single insert doesn't hold the whole dataset.
+     */
+    private void generateInto(JdbcTemplate jdbcTemplate) {
+        configure(jdbcTemplate);
+        insertCities(jdbcTemplate);
+        forEachChunk((first, last) -> {
+            jdbcTemplate.execute("INSERT INTO measurements " + readingsSql(first, last, "nextval('measurements_seq')"));
+            log.info("Generated readings %d to %d of %d".formatted(first, last, settings.readingsPerSensor()));
+        });
+        jdbcTemplate.execute(REBUILD_MONTHLY_STATS_SQL);
+        jdbcTemplate.execute("CHECKPOINT");
+    }
+
+    private void generateParquet() throws SQLException {
+        try (var dataSource = new SingleConnectionDataSource("jdbc:duckdb:", true)) {
+            var jdbcTemplate = new JdbcTemplate(dataSource);
+            configure(jdbcTemplate);
+            // Ids are unique within the file, they are not taken from the measurements sequence
+            String id = "sensor * %d + reading + 1".formatted(settings.readingsPerSensor());
+            jdbcTemplate.execute("COPY (%s) TO '%s' (FORMAT parquet)".formatted(
+                    readingsSql(0, settings.readingsPerSensor(), id), settings.output().toAbsolutePath()));
+        }
+    }
+
+    private void configure(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("SET threads = %d".formatted(settings.threads()));
+        // Rows don't need to keep the order of generation, which lets DuckDB stream them with less memory
+        jdbcTemplate.execute("SET preserve_insertion_order = false");
+        if (settings.memoryLimit() != null) {
+            jdbcTemplate.execute("SET memory_limit = '%s'".formatted(settings.memoryLimit()));
+        }
+    }
+
+    private void forEachChunk(ChunkConsumer consumer) {
+        long readingsPerChunk = Math.max(1, CHUNK_ROWS / settings.sensors());
+        for (long first = 0; first < settings.readingsPerSensor(); first += readingsPerChunk) {
+            consumer.accept(first, Math.min(first + readingsPerChunk, settings.readingsPerSensor()));
+        }
+    }
+
+    private String readingsSql(long firstReading, long lastReading, String id) {
+        Profile profile = settings.profile();
+        String shape = profile.shape(settings.from());
+        String noise = decimal(settings.noise());
+        return READINGS_SQL.formatted(
+                settings.from(), settings.interval().toNanos() / 1000, settings.sensors(), firstReading, lastReading,
+                id, settings.cities(),
+                VALUE_SQL.formatted(decimal(Profile.BASE_PM10), shape, noise),
+                VALUE_SQL.formatted(decimal(Profile.BASE_CO), shape, noise),
+                VALUE_SQL.formatted(decimal(Profile.BASE_NO2), shape, noise));
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%f", value);
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(long firstReading, long lastReading);
+    }
+
+    /**
+     * How values change over time, on top of the random noise.
+     */
+    public enum Profile {
+        /**
+         * Values vary only by the noise.
+         */
+        FLAT {
+            @Override
+            String shape(LocalDateTime from) {
+                return "1";
+            }
+        },
+        /**
+         * Values peak in the afternoon and are lowest at night.
+         */
+        DAILY {
+            @Override
+            String shape(LocalDateTime from) {
+                return "1 + 0.3 * sin(2 * pi() * ((epoch(timestamp) % 86400) / 86400 - 0.375))";
+            }
+        },
+        /**
+         * Values grow by 5% each month since the start of the range.
+         */
+        RISING {
+            @Override
+            String shape(LocalDateTime from) {
+                return "1 + 0.05 * (epoch(timestamp) - epoch(TIMESTAMP '%s')) / 2629800".formatted(from);
+            }
+        };
+
+        static final double BASE_PM10 = 25;
+        static final double BASE_CO = 0.8;
+        static final double BASE_NO2 = 30;
+
+        /**
+         * SQL expression of the multiplier applied to the base values, in terms of the 'timestamp' column.
+         */
+        abstract String shape(LocalDateTime from);
+    }
+
+    public record Settings(
+            int cities,
+            int regions,
+            int sensorsPerCity,
+            LocalDateTime from,
+            LocalDateTime to,
+            Duration interval,
+            Profile profile,
+            double noise,
+            Path output,
+            int threads,
+            String memoryLimit
+    ) {
+        private static final Map<String, String> DEFAULTS = Map.of(
+                "cities", "200",
+                "regions", "16",
+                "sensors-per-city", "10",
+                "interval", "PT15M",
+                "profile", "DAILY",
+                "noise", "0.2",
+                "output", "target/benchmark-data/generated.duckdb",
+                "threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+
+        public Settings {
+            if (cities <= 0 || regions <= 0 || sensorsPerCity <= 0) {
+                throw new IllegalArgumentException("Number of cities, regions and sensors should be positive");
+            }
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("Start of the range should be before its end");
+            }
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Interval between readings should be positive");
+            }
+        }
+
+        static Settings parse(String[] args) {
+            Map<String, String> options = Arrays.stream(args)
+                    .map(arg -> arg.replaceFirst("^--", "").split("=", 2))
+                    .collect(Collectors.toMap(option -> option[0], option -> option.length > 1 ? option[1] : ""));
+            Function<String, String> option = name -> {
+                String value = options.getOrDefault(name, DEFAULTS.get(name));
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing required option --%s".formatted(name));
+                }
+                return value;
+            };
+
+            return new Settings(
+                    Integer.parseInt(option.apply("cities")),
+                    Integer.parseInt(option.apply("regions")),
+                    Integer.parseInt(option.apply("sensors-per-city")),
+                    LocalDateTime.parse(option.apply("from")),
+                    LocalDateTime.parse(option.apply("to")),
+                    Duration.parse(option.apply("interval")),
+                    Profile.valueOf(option.apply("profile")),
+                    Double.parseDouble(option.apply("noise")),
+                    Path.of(option.apply("output")),
+                    Integer.parseInt(option.apply("threads")),
+                    options.get("memory-limit"));
+        }
+
+        int sensors() {
+            return cities * sensorsPerCity;
+        }
+
+        long readingsPerSensor() {
+            return Duration.between(from, to).dividedBy(interval);
+        }
+
+        long rows() {
+            return sensors() * readingsPerSensor();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.interview.monitor.benchmark;
+
+import com.interview.monitor.adapters.inbound.rest.dto.MeasurementRequestDTO;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a measurement request, and a single value of it, into what the appender writes, with the fixed-point
+ * values compared to the BigDecimal ones used before. Run with the GC profiler to see the allocation per measurement:
+ * 'mvn verify -Pbenchmark -Djmh.args="-prof gc MeasurementParsingBenchmark"'.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeasurementParsingBenchmark {
+    private static final byte[] REQUEST = """
+            {"sensorId":"2a83e44f-55c5-480e-a5ee-2bab5c04a597","cityId":"75d6753b-5f93-4db8-a9cd-506b6115b93d",\
+            "pm10":23.1,"co":12.4,"no2":0.39,"timestamp":1742332375}""".getBytes();
+
+    private static final char[] VALUE = "23.15".toCharArray();
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Benchmark
+    public long fixedPointValue() {
+        return MeasurementValue.parse(VALUE, 0, VALUE.length);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalValue() {
+        return toColumnScale(new BigDecimal(VALUE, 0, VALUE.length));
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        Measurement measurement = Measurement.fromRequest(objectMapper.readValue(REQUEST, MeasurementRequestDTO.class));
+        return measurement.pm10() + measurement.co() + measurement.no2();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimalRequest request = objectMapper.readValue(REQUEST, BigDecimalRequest.class);
+        // Scaled to the column as the appender required
+        return toColumnScale(request.pm10()).add(toColumnScale(request.co())).add(toColumnScale(request.no2()));
+    }
+
+    private static BigDecimal toColumnScale(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Request as it was read before values became fixed-point.
+     */
+    public record BigDecimalRequest(String sensorId, String cityId, BigDecimal pm10, BigDecimal co, BigDecimal no2,
+                                    Long timestamp) {
+    }
+}
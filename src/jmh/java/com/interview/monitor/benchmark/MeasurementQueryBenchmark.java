@@ -0,0 +1,75 @@
+package com.interview.monitor.benchmark;
+
+import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.adapters.outbound.db.DuckDbMeasurementRepository;
+import com.interview.monitor.domain.model.Pollutant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analytical repository queries against datasets of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementQueryBenchmark {
+    @Param({"1000000", "10000000", "100000000"})
+    long rows;
+
+    BenchmarkDatabase database;
+    DuckDbMeasurementRepository repository;
+    UUID cityId;
+    UUID regionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        database = BenchmarkDataset.open(rows);
+        repository = database.measurementRepository();
+        cityId = BenchmarkDataset.firstCityId(database.jdbcTemplate());
+        regionId = BenchmarkDataset.firstCityRegionId(database.jdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<CityStatsResponseDTO> queryCityStatsLastHour() {
+        return repository.queryCityStatsLastHour(cityId);
+    }
+
+    @Benchmark
+    public Map<Pollutant, List<String>> queryRising5MCities() {
+        return repository.queryRising5MCities(regionId, EnumSet.of(Pollutant.CO, Pollutant.PM10));
+    }
+
+    @Benchmark
+    public List<CityNo2YearToYearResponseDTO> queryWorstNo2CitiesYearToYear() {
+        return repository.queryWorstNo2CitiesYearToYear();
+    }
+}
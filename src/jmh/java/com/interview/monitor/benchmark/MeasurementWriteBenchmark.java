@@ -0,0 +1,129 @@
+package com.interview.monitor.benchmark;
+
+import com.interview.monitor.adapters.outbound.db.DuckDbMeasurementRepository;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single and batched measurement writes. Every trial writes into a new database, which only contains the cities
+ * of the generated datasets, so results don't depend on what earlier runs wrote. Batched writes are compared with
+ * the PreparedStatement batch the appender based {@link DuckDbMeasurementRepository#saveAll(List)} replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+// Fully qualified, the domain Measurement is used by the benchmark itself
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementWriteBenchmark {
+    private static final String INSERT_MEASUREMENT_SQL = """
+            INSERT INTO measurements (id, sensor_id, city_id, pm10, co, no2, timestamp)
+            VALUES (nextval('measurements_seq'), ?, ?, ?, ?, ?, ?)
+            """;
+
+    @Benchmark
+    public void save(Database database) {
+        database.repository().save(database.nextMeasurement());
+    }
+
+    @Benchmark
+    public void saveAll(Database database, Batch batch) {
+        database.repository().saveAll(batch.measurements);
+    }
+
+    /**
+     * The write path used before the appender was introduced, without the rollups.
+     */
+    @Benchmark
+    public void saveAllWithPreparedStatementBatch(Database database, Batch batch) {
+        database.database.jdbcTemplate().batchUpdate(INSERT_MEASUREMENT_SQL, batch.measurements, batch.measurements.size(),
+                (stmt, measurement) -> {
+                    stmt.setObject(1, measurement.sensorId());
+                    stmt.setObject(2, measurement.cityId());
+                    stmt.setBigDecimal(3, MeasurementValue.toDecimal(measurement.pm10()));
+                    stmt.setBigDecimal(4, MeasurementValue.toDecimal(measurement.co()));
+                    stmt.setBigDecimal(5, MeasurementValue.toDecimal(measurement.no2()));
+                    stmt.setTimestamp(6, Timestamp.from(measurement.timestamp()));
+                });
+    }
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        BenchmarkDatabase database;
+        Path directory;
+        List<UUID> cityIds;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, SQLException {
+            directory = Files.createTempDirectory("measurement-write-benchmark");
+            database = BenchmarkDatabase.open(directory.resolve("measurements.duckdb"));
+            BenchmarkDataset.insertCities(database.jdbcTemplate());
+            cityIds = database.jdbcTemplate().queryForList(
+                    "SELECT id FROM cities WHERE name LIKE ?", UUID.class, DatasetGenerator.CITY_NAME_PREFIX + "%");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException, SQLException {
+            database.close();
+            try (var files = Files.walk(directory)) {
+                for (Path file : files.sorted((first, second) -> second.compareTo(first)).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        DuckDbMeasurementRepository repository() {
+            return database.measurementRepository();
+        }
+
+        Measurement nextMeasurement() {
+            var random = ThreadLocalRandom.current();
+            return new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityIds.get(random.nextInt(cityIds.size())),
+                    random.nextLong(1_000, 5_000),
+                    random.nextLong(50, 150),
+                    random.nextLong(1_000, 6_000),
+                    Instant.now());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"100", "1000", "10000"})
+        int batchSize;
+
+        List<Measurement> measurements;
+
+        // New measurements for every call, the same ones written again would be skipped as duplicates
+        @Setup(Level.Invocation)
+        public void setUp(Database database) {
+            measurements = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                measurements.add(database.nextMeasurement());
+            }
+        }
+    }
+}
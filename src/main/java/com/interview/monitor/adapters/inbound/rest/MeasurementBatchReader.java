@@ -0,0 +1,227 @@
+package com.interview.monitor.adapters.inbound.rest;
+
+import com.interview.monitor.adapters.inbound.rest.dto.MeasurementBatchResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.MeasurementRequestDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.RejectedMeasurementDTO;
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.IngestionOverloadedException;
+import com.interview.monitor.domain.exception.ValidationException;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.ports.inbound.CityService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a batch of measurements sent either as a JSON array or as newline delimited JSON. The body is parsed one
+ * measurement at a time, so only a single chunk of valid measurements is kept in memory, no matter how big the batch is.
+ * Invalid measurements, and measurements of unknown cities, are skipped and reported back, they don't fail the whole
+ * batch.
+ * <p>
+ * Batches are not atomic, each chunk is saved as soon as it is read. When saving a chunk fails after earlier ones were
+ * saved, reading stops and the response reports the measurements saved so far, with the first measurement of the
+ * failed chunk rejected as the point to resume from. Measurements sent again are skipped as duplicates.
+ */
+@Component
+public class MeasurementBatchReader {
+    private static final int MAX_REPORTED_REJECTS = 1000;
+    // A single measurement takes around 200 characters
+    private static final int MAX_NDJSON_LINE_LENGTH = 16_384;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader arrayElementReader;
+    private final Validator validator;
+    private final CityService cityService;
+    private final int chunkSize;
+
+    public MeasurementBatchReader(ObjectMapper objectMapper,
+                                  Validator validator,
+                                  CityService cityService,
+                                  @Value("${ingestion.batch-size}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        // Array elements are read one by one, the rest of the array always follows the element
+        this.arrayElementReader = objectMapper.reader().without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.validator = validator;
+        this.cityService = cityService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param chunkConsumer receives consecutive chunks of valid measurements, each one of at most the configured size
+     */
+    public MeasurementBatchResponseDTO read(InputStream body, MediaType contentType,
+                                            Consumer<List<Measurement>> chunkConsumer) throws IOException {
+        var batch = new Batch(chunkConsumer);
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            readNdJson(body, batch);
+        } else {
+            readJsonArray(body, batch);
+        }
+        return batch.complete();
+    }
+
+    private void readJsonArray(InputStream body, Batch batch) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("Request body should be a JSON array of measurements");
+            }
+            while (!batch.stopped && parser.nextToken() != JsonToken.END_ARRAY) {
+                batch.add(arrayElementReader.readTree(parser));
+            }
+        } catch (JacksonException ex) {
+            // Can't tell where the next measurement starts once the array itself is malformed
+            batch.reject("Malformed JSON, remaining measurements were skipped: %s".formatted(ex.getOriginalMessage()));
+        }
+    }
+
+    /**
+     * Lines are read up to {@link #MAX_NDJSON_LINE_LENGTH} characters, the rest of a longer line is skipped without
+     * being kept and the line is rejected, so a body without line breaks isn't read into memory as a whole.
+     */
+    private void readNdJson(InputStream body, Batch batch) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            var line = new StringBuilder();
+            boolean tooLong = false;
+            int next;
+            do {
+                next = reader.read();
+                if (next != '\n' && next != -1) {
+                    if (line.length() < MAX_NDJSON_LINE_LENGTH) {
+                        line.append((char) next);
+                    } else {
+                        tooLong = true;
+                    }
+                    continue;
+                }
+
+                if (tooLong) {
+                    batch.reject("Line longer than %d characters".formatted(MAX_NDJSON_LINE_LENGTH));
+                } else if (!line.toString().isBlank()) {
+                    addNdJsonLine(line.toString(), batch);
+                }
+                line.setLength(0);
+                tooLong = false;
+            } while (next != -1 && !batch.stopped);
+        }
+    }
+
+    private void addNdJsonLine(String line, Batch batch) {
+        JsonNode row;
+        try {
+            row = objectMapper.readTree(line);
+        } catch (JacksonException ex) {
+            batch.reject("Malformed JSON: %s".formatted(ex.getOriginalMessage()));
+            return;
+        }
+        batch.add(row);
+    }
+
+    private class Batch {
+        private final Consumer<List<Measurement>> chunkConsumer;
+        private final List<RejectedMeasurementDTO> rejects = new ArrayList<>();
+        private List<Measurement> chunk = new ArrayList<>(chunkSize);
+        private long index;
+        private long chunkStartIndex;
+        private long accepted;
+        private long rejected;
+        private boolean stopped;
+
+        private Batch(Consumer<List<Measurement>> chunkConsumer) {
+            this.chunkConsumer = chunkConsumer;
+        }
+
+        private void add(JsonNode row) {
+            MeasurementRequestDTO request;
+            try {
+                request = objectMapper.treeToValue(row, MeasurementRequestDTO.class);
+            } catch (JacksonException ex) {
+                reject("Incorrect request format: %s".formatted(ex.getOriginalMessage()));
+                return;
+            }
+
+            Set<ConstraintViolation<MeasurementRequestDTO>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject("Request validation failed. Reason: " + violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            Measurement measurement;
+            try {
+                measurement = Measurement.fromRequest(request);
+            } catch (RuntimeException e) {
+                reject("Incorrect request format: %s".formatted(e.getMessage()));
+                return;
+            }
+            if (!cityService.isKnownCity(measurement.cityId())) {
+                reject("Unknown city: %s".formatted(measurement.cityId()));
+                return;
+            }
+
+            if (chunk.isEmpty()) {
+                chunkStartIndex = index;
+            }
+            index++;
+            chunk.add(measurement);
+            if (chunk.size() >= chunkSize) {
+                flushChunk();
+            }
+        }
+
+        private void reject(String reason) {
+            if (rejects.size() < MAX_REPORTED_REJECTS) {
+                rejects.add(new RejectedMeasurementDTO(index, reason));
+            }
+            index++;
+            rejected++;
+        }
+
+        private MeasurementBatchResponseDTO complete() {
+            if (!stopped && !chunk.isEmpty()) {
+                flushChunk();
+            }
+            return new MeasurementBatchResponseDTO(accepted, rejected, rejects);
+        }
+
+        private void flushChunk() {
+            try {
+                chunkConsumer.accept(chunk);
+            } catch (IngestionOverloadedException | DatastoreException ex) {
+                if (accepted == 0) {
+                    // Nothing was saved, the whole batch can be sent again
+                    throw ex;
+                }
+                stopped = true;
+                rejected += chunk.size();
+                rejects.add(new RejectedMeasurementDTO(chunkStartIndex,
+                        "Saving stopped, this and the following measurements should be sent again: %s"
+                                .formatted(ex.getMessage())));
+                return;
+            }
+            accepted += chunk.size();
+            chunk = new ArrayList<>(chunkSize);
+        }
+    }
+}
@@ -1,30 +1,57 @@
 package com.interview.monitor.adapters.inbound.rest;
 
 
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.MeasurementBatchResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.MeasurementRequestDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.RisingCityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
 import com.interview.monitor.domain.exception.ValidationException;
+import com.interview.monitor.domain.model.ExportFormat;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.model.SeriesResolution;
 import com.interview.monitor.domain.ports.inbound.MeasurementService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class MeasurementController {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType APPLICATION_PARQUET = MediaType.parseMediaType("application/vnd.apache.parquet");
+    private static final String APPLICATION_ARROW_STREAM_VALUE = "application/vnd.apache.arrow.stream";
+    private static final MediaType APPLICATION_ARROW_STREAM = MediaType.parseMediaType(APPLICATION_ARROW_STREAM_VALUE);
+    private static final String EXPORT_FILE_NAME = "measurements";
+    private static final String AUTO_RESOLUTION = "auto";
+    private static final String DEFAULT_SERIES_POINTS = "100";
+
     private final MeasurementService measurementService;
+    private final MeasurementBatchReader measurementBatchReader;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(value = "/save-measure", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Void> postMeasurement(@Valid @RequestBody MeasurementRequestDTO request) {
@@ -42,6 +69,16 @@ public class MeasurementController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping(value = "/measurements/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<MeasurementBatchResponseDTO> postMeasurementBatch(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) throws IOException {
+        log.info("Measurement batch received [contentType=%s]".formatted(contentType));
+        MeasurementBatchResponseDTO response = measurementBatchReader.read(body, contentType, measurementService::saveAll);
+        log.info("Measurement batch processed [accepted=%d, rejected=%d]".formatted(response.accepted(), response.rejected()));
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/stats/5M/{regionId}")
     public ResponseEntity<RisingCityStatsResponseDTO> getRisingCityStats(@NotNull @PathVariable UUID regionId) {
         log.info("Request received for getRisingCityStats [regionId=%s]".formatted(regionId));
@@ -57,10 +94,110 @@ public class MeasurementController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @GetMapping("/report/worst-cities-no2-y2y")
+    @GetMapping("/stats/1H/region/{regionId}")
+    public ResponseEntity<StreamingResponseBody> getRegionStatsLastHour(@NotNull @PathVariable UUID regionId) {
+        log.info("Request received for getRegionStatsLastHour [regionId=%s]".formatted(regionId));
+        return streamJsonArray(measurementService.calculateRegionStatsLastHour(regionId));
+    }
+
+    @PostMapping(value = "/stats/1H/cities", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getCitiesStatsLastHour(@NotNull @RequestBody List<UUID> cityIds) {
+        log.info("Request received for getCitiesStatsLastHour [cities=%d]".formatted(cityIds.size()));
+        if (cityIds.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("Incorrect request format: city ids can't be null");
+        }
+        return streamJsonArray(measurementService.calculateCitiesStatsLastHour(cityIds));
+    }
+
+    @GetMapping(value = "/report/worst-cities-no2-y2y", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<List<CityNo2YearToYearResponseDTO>> getWorstNo2CitiesYearToYear() {
         log.info("Request received for getWorstNo2CitiesYearToYear");
         List<CityNo2YearToYearResponseDTO> response = measurementService.getWorstNo2CitiesYearToYear();
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Chosen over the JSON response only for clients which prefer an Arrow IPC stream, see
+     * {@link #getWorstNo2CitiesYearToYear()}.
+     */
+    @GetMapping(value = "/report/worst-cities-no2-y2y", produces = APPLICATION_ARROW_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> getWorstNo2CitiesYearToYearArrow() {
+        log.info("Request received for getWorstNo2CitiesYearToYearArrow");
+        StreamingResponseBody body = measurementService::exportWorstNo2CitiesYearToYear;
+        return ResponseEntity.ok().contentType(APPLICATION_ARROW_STREAM).body(body);
+    }
+
+    /**
+     * Series of the city in the time range, {@code resolution} is one of 'minute', 'hour', 'day' or 'auto' for
+     * the coarsest one with at least {@code points} points.
+     */
+    @GetMapping("/series/{cityId}")
+    public ResponseEntity<SeriesResponseDTO> getCitySeries(@NotNull @PathVariable UUID cityId,
+                                                           @RequestParam Instant from,
+                                                           @RequestParam Instant to,
+                                                           @RequestParam(defaultValue = AUTO_RESOLUTION) String resolution,
+                                                           @RequestParam(defaultValue = DEFAULT_SERIES_POINTS) int points) {
+        log.info("Request received for getCitySeries [cityId=%s, from=%s, to=%s, resolution=%s, points=%d]"
+                .formatted(cityId, from, to, resolution, points));
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Incorrect request format: 'from' should be before 'to'");
+        }
+        if (points < 1) {
+            throw new ValidationException("Incorrect request format: 'points' should be positive");
+        }
+        SeriesResolution seriesResolution = null;
+        if (!AUTO_RESOLUTION.equalsIgnoreCase(resolution)) {
+            try {
+                seriesResolution = SeriesResolution.valueOf(resolution.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Incorrect request format: unknown resolution '%s'".formatted(resolution));
+            }
+        }
+
+        return ResponseEntity.ok(measurementService.getCitySeries(cityId, from, to, seriesResolution, points));
+    }
+
+    @GetMapping("/export/measurements")
+    public ResponseEntity<StreamingResponseBody> exportMeasurements(@RequestParam Instant from,
+                                                                    @RequestParam Instant to,
+                                                                    @RequestParam(required = false) UUID cityId,
+                                                                    @RequestParam(defaultValue = "csv") String format) {
+        log.info("Request received for exportMeasurements [from=%s, to=%s, cityId=%s, format=%s]"
+                .formatted(from, to, cityId, format));
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Incorrect request format: 'from' should be before 'to'");
+        }
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Incorrect request format: unknown export format '%s'".formatted(format));
+        }
+
+        var export = new MeasurementExport(from, to, cityId, exportFormat);
+        StreamingResponseBody body = outputStream -> measurementService.exportMeasurements(export, outputStream);
+        String fileName = EXPORT_FILE_NAME + "." + exportFormat.name().toLowerCase(Locale.ROOT);
+        return ResponseEntity.ok()
+                .contentType(switch (exportFormat) {
+                    case CSV -> TEXT_CSV;
+                    case PARQUET -> APPLICATION_PARQUET;
+                    case ARROW -> APPLICATION_ARROW_STREAM;
+                })
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Writes the statistics to the response one at a time, as they are computed, instead of collecting them first.
+     */
+    private ResponseEntity<StreamingResponseBody> streamJsonArray(Stream<CityStatsLastHourResponseDTO> stats) {
+        StreamingResponseBody body = outputStream -> {
+            try (stats; JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                stats.forEach(generator::writePOJO);
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
@@ -0,0 +1,41 @@
+package com.interview.monitor.adapters.inbound.rest;
+
+import com.interview.monitor.domain.model.MeasurementValue;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+/**
+ * Reads a measurement value, sent as a JSON number or a string, straight from the parser buffer into its fixed-point
+ * representation, see {@link MeasurementValue}. Numbers with an exponent are rare enough to go through BigDecimal.
+ */
+public class MeasurementValueDeserializer extends ValueDeserializer<Long> {
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) {
+        JsonToken token = parser.currentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return MeasurementValue.valueOf(parser.getLongValue());
+            }
+            if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+                return parse(parser, token);
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return context.reportInputMismatch(this, "Invalid measurement value: %s".formatted(e.getMessage()));
+        }
+        return (Long) context.handleUnexpectedToken(Long.class, parser);
+    }
+
+    private static long parse(JsonParser parser, JsonToken token) {
+        try {
+            return MeasurementValue.parse(parser.getStringCharacters(), parser.getStringOffset(), parser.getStringLength());
+        } catch (NumberFormatException e) {
+            if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return MeasurementValue.valueOf(parser.getDecimalValue());
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.interview.monitor.adapters.inbound.rest;
+
+import com.interview.monitor.domain.model.MeasurementValue;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+/**
+ * Writes a fixed-point measurement value, see {@link MeasurementValue}, as a decimal JSON number.
+ */
+public class MeasurementValueSerializer extends ValueSerializer<Long> {
+
+    @Override
+    public void serialize(Long value, JsonGenerator generator, SerializationContext context) {
+        generator.writeNumber(MeasurementValue.toDecimal(value));
+    }
+}
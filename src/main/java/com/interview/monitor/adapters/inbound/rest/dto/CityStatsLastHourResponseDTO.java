@@ -0,0 +1,11 @@
+package com.interview.monitor.adapters.inbound.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.UUID;
+
+public record CityStatsLastHourResponseDTO(
+        UUID cityId,
+        @JsonUnwrapped CityStatsResponseDTO stats
+) {
+}
@@ -0,0 +1,10 @@
+package com.interview.monitor.adapters.inbound.rest.dto;
+
+import java.util.List;
+
+public record MeasurementBatchResponseDTO(
+        long accepted,
+        long rejected,
+        List<RejectedMeasurementDTO> rejects
+) {
+}
@@ -1,10 +1,16 @@
 package com.interview.monitor.adapters.inbound.rest.dto;
 
+import com.interview.monitor.adapters.inbound.rest.MeasurementValueDeserializer;
+import com.interview.monitor.adapters.inbound.rest.MeasurementValueSerializer;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import tools.jackson.databind.annotation.JsonDeserialize;
+import tools.jackson.databind.annotation.JsonSerialize;
 
-import java.math.BigDecimal;
-
+/**
+ * Values are fixed-point hundredths, see {@link com.interview.monitor.domain.model.MeasurementValue}, sent and
+ * received as decimal numbers.
+ */
 public record MeasurementRequestDTO(
         @NotBlank(message = "sensorId is required")
         String sensorId,
@@ -13,13 +19,19 @@ public record MeasurementRequestDTO(
         String cityId,
 
         @NotNull(message = "PM10 is required")
-        BigDecimal pm10,
+        @JsonSerialize(using = MeasurementValueSerializer.class)
+        @JsonDeserialize(using = MeasurementValueDeserializer.class)
+        Long pm10,
 
         @NotNull(message = "CO is required")
-        BigDecimal co,
+        @JsonSerialize(using = MeasurementValueSerializer.class)
+        @JsonDeserialize(using = MeasurementValueDeserializer.class)
+        Long co,
 
         @NotNull(message = "NO2 is required")
-        BigDecimal no2,
+        @JsonSerialize(using = MeasurementValueSerializer.class)
+        @JsonDeserialize(using = MeasurementValueDeserializer.class)
+        Long no2,
 
         @NotNull(message = "timestamp is required")
         Long timestamp
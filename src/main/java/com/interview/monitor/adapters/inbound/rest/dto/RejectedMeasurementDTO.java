@@ -0,0 +1,7 @@
+package com.interview.monitor.adapters.inbound.rest.dto;
+
+public record RejectedMeasurementDTO(
+        long index,
+        String reason
+) {
+}
@@ -0,0 +1,22 @@
+package com.interview.monitor.adapters.inbound.rest.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Statistics of all the measurements of a city taken in a single bucket of a series, starting at the timestamp.
+ */
+public record SeriesPointResponseDTO(
+        Instant timestamp,
+        long count,
+        BigDecimal avgNO2,
+        BigDecimal maxNO2,
+        BigDecimal minNO2,
+        BigDecimal avgCO,
+        BigDecimal maxCO,
+        BigDecimal minCO,
+        BigDecimal avgPM10,
+        BigDecimal maxPM10,
+        BigDecimal minPM10
+) {
+}
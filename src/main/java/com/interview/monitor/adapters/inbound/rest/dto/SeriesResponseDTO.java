@@ -0,0 +1,13 @@
+package com.interview.monitor.adapters.inbound.rest.dto;
+
+import com.interview.monitor.domain.model.SeriesResolution;
+
+import java.util.List;
+import java.util.UUID;
+
+public record SeriesResponseDTO(
+        UUID cityId,
+        SeriesResolution resolution,
+        List<SeriesPointResponseDTO> points
+) {
+}
@@ -0,0 +1,106 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.model.Measurement;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Contribution of a batch of measurements to the 'city_monthly_stats' rollup of a single city and month.
+ */
+final class CityMonthlyStatsDelta {
+    private final UUID cityId;
+    private final LocalDate month;
+    private long count;
+    private final Stats pm10 = new Stats();
+    private final Stats co = new Stats();
+    private final Stats no2 = new Stats();
+    private long daysMask;
+
+    private CityMonthlyStatsDelta(UUID cityId, LocalDate month) {
+        this.cityId = cityId;
+        this.month = month;
+    }
+
+    static Collection<CityMonthlyStatsDelta> of(List<Measurement> measurements) {
+        Map<Key, CityMonthlyStatsDelta> deltas = new LinkedHashMap<>();
+        for (Measurement measurement : measurements) {
+            LocalDateTime timestamp = DuckDbMeasurementRepository.toStoredDateTime(measurement.timestamp());
+            LocalDate month = timestamp.toLocalDate().withDayOfMonth(1);
+            deltas.computeIfAbsent(new Key(measurement.cityId(), month), key -> new CityMonthlyStatsDelta(key.cityId(), key.month()))
+                    .add(measurement, timestamp.getDayOfMonth());
+        }
+        return deltas.values();
+    }
+
+    private void add(Measurement measurement, int dayOfMonth) {
+        count++;
+        pm10.add(measurement.pm10());
+        co.add(measurement.co());
+        no2.add(measurement.no2());
+        daysMask |= 1L << (dayOfMonth - 1);
+    }
+
+    UUID cityId() {
+        return cityId;
+    }
+
+    LocalDate month() {
+        return month;
+    }
+
+    long count() {
+        return count;
+    }
+
+    Stats pm10() {
+        return pm10;
+    }
+
+    Stats co() {
+        return co;
+    }
+
+    Stats no2() {
+        return no2;
+    }
+
+    long daysMask() {
+        return daysMask;
+    }
+
+    /**
+     * Fixed-point min, max and sum, see {@link com.interview.monitor.domain.model.MeasurementValue}.
+     */
+    static final class Stats {
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private long sum;
+
+        private void add(long value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        long min() {
+            return min;
+        }
+
+        long max() {
+            return max;
+        }
+
+        long sum() {
+            return sum;
+        }
+    }
+
+    private record Key(UUID cityId, LocalDate month) {
+    }
+}
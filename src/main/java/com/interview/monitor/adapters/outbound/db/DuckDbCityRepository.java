@@ -1,47 +1,85 @@
 package com.interview.monitor.adapters.outbound.db;
 
-import com.interview.monitor.domain.exception.DatastoreException;
 import com.interview.monitor.domain.model.City;
 import com.interview.monitor.domain.ports.outbound.CityRepository;
+import org.duckdb.DuckDBAppender;
 import org.duckdb.DuckDBConnection;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import static com.interview.monitor.adapters.outbound.db.SqlQueries.UPSERT_CITY_SQL;
+import static com.interview.monitor.adapters.outbound.db.SqlQueries.*;
 
 @Repository
 public class DuckDbCityRepository implements CityRepository {
-    private final String datasourceUrl;
+    private static final String TEMP_CATALOG = "temp";
 
-    public DuckDbCityRepository(@Value("${spring.datasource.url}") String datasourceUrl) {
-        this.datasourceUrl = datasourceUrl;
+    private final DuckDbConnectionManager connectionManager;
+
+    public DuckDbCityRepository(DuckDbConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
     }
 
+    /**
+     * Appends the cities to a connection scoped staging table and merges it into the cities table with
+     * a single statement, which skips the cities with the same hash as the stored one.
+     */
     @Override
-    public void upsertAll(List<City> cities) {
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(UPSERT_CITY_SQL)) {
-            for (City city : cities) {
-                stmt.setObject(1, city.id());
-                stmt.setObject(2, city.name());
-                stmt.setObject(3, city.country());
-                stmt.setObject(4, city.region());
-                stmt.setObject(5, city.regionId());
-                stmt.addBatch();
+    public int upsertAll(List<City> cities) {
+        if (cities.isEmpty()) {
+            return 0;
+        }
+
+        return connectionManager.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                // Replaces whatever a failed upsert could have left behind on this pooled connection
+                stmt.execute(CREATE_CITIES_STAGING_SQL);
+                try (DuckDBAppender appender = conn.createAppender(TEMP_CATALOG, DuckDBConnection.DEFAULT_SCHEMA, CITIES_STAGING_TABLE)) {
+                    for (City city : lastOccurrences(cities)) {
+                        appender.beginRow();
+                        appender.append(city.id());
+                        appender.append(city.name());
+                        appender.append(city.country());
+                        appender.append(city.region());
+                        appender.append(city.regionId());
+                        appender.endRow();
+                    }
+                    appender.flush();
+                }
+                int upserted = stmt.executeUpdate(MERGE_CITIES_STAGING_SQL);
+                stmt.execute(DROP_CITIES_STAGING_SQL);
+                return upserted;
             }
+        });
+    }
 
-            stmt.executeBatch();
-        } catch (SQLException ex) {
-            throw new DatastoreException("Problems occurred when  accessing database", ex);
-        }
+    @Override
+    public List<City> findAll() {
+        return connectionManager.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                var cities = new ArrayList<City>();
+                ResultSet resultSet = stmt.executeQuery(ALL_CITIES_SQL);
+                while (resultSet.next()) {
+                    cities.add(new City(resultSet.getObject(1, UUID.class), resultSet.getString(2),
+                            resultSet.getString(3), resultSet.getString(4), resultSet.getObject(5, UUID.class)));
+                }
+                return cities;
+            }
+        });
     }
 
-    private DuckDBConnection getDuckDBConnection() throws SQLException {
-        return (DuckDBConnection) DriverManager.getConnection(datasourceUrl);
+    private static Collection<City> lastOccurrences(List<City> cities) {
+        // A single merge can't update the same row twice, the last occurrence wins like it did for separate upserts
+        return cities.stream()
+                .collect(Collectors.toMap(City::id, Function.identity(), (first, last) -> last, LinkedHashMap<UUID, City>::new))
+                .values();
     }
 }
@@ -0,0 +1,128 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.InvalidDataException;
+import org.duckdb.DuckDBConnection;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Hands out pooled DuckDB connections to the repositories. Connections are obtained through {@link DataSourceUtils},
+ * so a repository call made inside a Spring managed transaction joins it instead of using a separate connection.
+ * <p>
+ * DuckDB does its work in native code, which pins a virtual thread to its carrier for the whole call. When called
+ * from a virtual thread the work is handed over to a bounded pool of platform threads instead, and the virtual thread
+ * only waits for it. That includes taking the pooled connection, which begins its transaction, and ending transactions,
+ * see {@link DuckDbTransactionManager}. Connections are still given back to the pool on the calling thread, which only
+ * resets their settings without calling DuckDB.
+ * <p>
+ * Errors caused by the written data are reported as {@link InvalidDataException}, so callers can tell them apart from
+ * failures of the database, which writing the same data again may get past.
+ */
+@Component
+public class DuckDbConnectionManager {
+    public static final String DUCKDB_CALL_EXECUTOR = "duckDbCallExecutor";
+
+    private static final String PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE = "Problems occurred when accessing database";
+    private static final String DATA_REJECTED_BY_DATABASE = "Data was rejected by database";
+    // DuckDB doesn't set SQL states, the type of the error only shows at the start of its message
+    private static final List<String> DATA_ERROR_TYPES = List.of(
+            "Constraint Error", "Conversion Error", "Invalid Input Error", "Out of Range Error");
+
+    private final DataSource dataSource;
+    private final ExecutorService platformExecutor;
+
+    public DuckDbConnectionManager(DataSource dataSource,
+                                   @Qualifier(DUCKDB_CALL_EXECUTOR) ExecutorService platformExecutor) {
+        this.dataSource = dataSource;
+        this.platformExecutor = platformExecutor;
+    }
+
+    public <T> T execute(ConnectionCallback<T> callback) {
+        // Only a lazy handle, the pooled connection is taken once it's unwrapped
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            return call(() -> callback.doInConnection(conn.unwrap(DuckDBConnection.class)));
+        } catch (SQLException ex) {
+            if (isDataError(ex)) {
+                throw new InvalidDataException(DATA_REJECTED_BY_DATABASE, ex);
+            }
+            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    public void executeWithoutResult(ConnectionConsumer consumer) {
+        execute(conn -> {
+            consumer.acceptConnection(conn);
+            return null;
+        });
+    }
+
+    /**
+     * Makes the DuckDB call on the calling thread, or on one of the platform threads when called from a virtual thread.
+     */
+    <T> T call(DuckDbCall<T> call) throws SQLException {
+        if (!Thread.currentThread().isVirtual()) {
+            return call.call();
+        }
+
+        Future<T> result = platformExecutor.submit(call::call);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException ex) {
+                    // The native call can't be stopped, the connection is only released once it's done with
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static boolean isDataError(SQLException ex) {
+        String message = ex.getMessage();
+        return message != null && DATA_ERROR_TYPES.stream().anyMatch(message::startsWith);
+    }
+
+    @FunctionalInterface
+    interface DuckDbCall<T> {
+        T call() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T doInConnection(DuckDBConnection conn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface ConnectionConsumer {
+        void acceptConnection(DuckDBConnection conn) throws SQLException;
+    }
+}
@@ -0,0 +1,43 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import org.duckdb.DuckDBConnection;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Owns the single embedded DuckDB database instance of the application. Every connection handed out is a
+ * {@link DuckDBConnection#duplicate()} of the root connection, so the database file is opened only once and new
+ * connections don't pay the cost of opening (and replaying the WAL of) the database again.
+ * Meant to be wrapped by a connection pool, which takes care of sizing and idle eviction.
+ */
+public class DuckDbDataSource extends AbstractDataSource implements AutoCloseable {
+    private final DuckDBConnection rootConnection;
+
+    public DuckDbDataSource(String datasourceUrl) throws SQLException {
+        this.rootConnection = (DuckDBConnection) DriverManager.getConnection(datasourceUrl);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return rootConnection.duplicate();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // DuckDB is embedded, there are no credentials to check
+        return getConnection();
+    }
+
+    @Override
+    public void setLoginTimeout(int timeout) {
+        // Nothing to wait for, duplicating the root connection never blocks
+    }
+
+    @Override
+    public void close() throws SQLException {
+        rootConnection.close();
+    }
+}
@@ -0,0 +1,147 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.ports.outbound.MeasurementArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.duckdb.DuckDBConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.interview.monitor.adapters.outbound.db.SqlQueries.*;
+
+/**
+ * Archives measurements to Parquet files laid out Hive style by year, month and a hash bucket of the city, e.g.
+ * '{location}/year=2025/month=1/city_bucket=3/measurements_...parquet'. Every run writes new files, so measurements
+ * which arrive late for an already archived month are simply added to it by the next run.
+ * <p>
+ * The measurements are read through the 'all_measurements' view, which only reads the archive once there are any
+ * files in it. The view is recreated after every run and on startup, in case the archive was moved or emptied.
+ */
+@Slf4j
+@Component
+public class DuckDbMeasurementArchive implements MeasurementArchive, SmartLifecycle {
+    private static final String FILE_PREFIX = "measurements_";
+    private static final String FILES_PATTERN = "/**/*.parquet";
+
+    private final DuckDbConnectionManager connectionManager;
+    private final String location;
+    private final int cityBuckets;
+
+    private volatile boolean running;
+
+    public DuckDbMeasurementArchive(DuckDbConnectionManager connectionManager,
+                                    @Value("${archive.location}") String location,
+                                    @Value("${archive.city-buckets}") int cityBuckets) {
+        this.connectionManager = connectionManager;
+        // The view is stored in the database, it shouldn't depend on the directory the application is started from
+        this.location = Path.of(location).toAbsolutePath().normalize().toString();
+        this.cityBuckets = cityBuckets;
+    }
+
+    /**
+     * Copies the measurements to the archive and deletes them from the measurements table in a single transaction
+     * of its own. When it fails, the files written so far are removed. The files can't be part of the transaction
+     * though: if the process dies after they were written and before the commit, they are left in the archive while
+     * the measurements stay in the table, and the next run archives them again. Such duplicates can be found by their
+     * file names, every run writes files of its own prefix.
+     */
+    @Override
+    public long archiveBefore(YearMonth month) {
+        LocalDateTime before = month.atDay(1).atStartOfDay();
+        String filePrefix = FILE_PREFIX + UUID.randomUUID() + "_";
+
+        long archived = connectionManager.execute(conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement copy = conn.prepareStatement(ARCHIVE_MEASUREMENTS_BEFORE_SQL.formatted(cityBuckets, location, filePrefix));
+                 PreparedStatement delete = conn.prepareStatement(DELETE_MEASUREMENTS_BEFORE_SQL)) {
+                copy.setObject(1, before);
+                copy.execute();
+                delete.setObject(1, before);
+                int deleted = delete.executeUpdate();
+                conn.commit();
+                return deleted;
+            } catch (SQLException | RuntimeException ex) {
+                conn.rollback();
+                deleteFiles(filePrefix);
+                throw ex;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        });
+
+        if (archived > 0) {
+            refreshView();
+        }
+        log.info("Archived %d measurements taken before %s".formatted(archived, month));
+        return archived;
+    }
+
+    void refreshView() {
+        connectionManager.executeWithoutResult(conn -> {
+            String archiveFiles = location + FILES_PATTERN;
+            String union = hasFiles(conn, archiveFiles) ? ARCHIVED_MEASUREMENTS_UNION.formatted(archiveFiles) : "";
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_ALL_MEASUREMENTS_VIEW_SQL.formatted(union));
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        refreshView();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before the last hour statistics are warmed up from the view
+        return SmartLifecycle.DEFAULT_PHASE - 16384;
+    }
+
+    private static boolean hasFiles(DuckDBConnection conn, String archiveFiles) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet resultSet = stmt.executeQuery(COUNT_ARCHIVE_FILES_SQL.formatted(archiveFiles));
+            resultSet.next();
+            return resultSet.getLong(1) > 0;
+        }
+    }
+
+    private void deleteFiles(String filePrefix) {
+        Path root = Path.of(location);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            List<Path> written = files.filter(file -> file.getFileName().toString().startsWith(filePrefix)).toList();
+            for (Path file : written) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ex) {
+            log.error("Problems occurred when removing archive files %s* of a failed run".formatted(filePrefix), ex);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.ports.outbound.MeasurementExporter;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.duckdb.DuckDBConnection;
+import org.duckdb.DuckDBResultSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.interview.monitor.adapters.outbound.db.DuckDbMeasurementRepository.setMonthOf;
+import static com.interview.monitor.adapters.outbound.db.DuckDbMeasurementRepository.toStoredDateTime;
+import static com.interview.monitor.adapters.outbound.db.SqlQueries.*;
+
+/**
+ * Exports measurements straight from DuckDB. CSV rows are read from a streamed result set and Arrow record batches
+ * from the Arrow stream of the result, both {@code export.fetch-size} rows at a time, and are written out before more
+ * are fetched. A failed write, e.g. when the client disconnected, cancels the query.
+ * <p>
+ * Parquet keeps its metadata at the end of the file, so it's written to a temporary file by DuckDB first and copied to
+ * the output once complete.
+ * <p>
+ * Analytical reports are exported as Arrow too: the record batches are copied from DuckDB's columnar results straight to
+ * the output, without going through JDBC values and objects of every row.
+ * <p>
+ * An export holds its connection until the whole output is written, which takes as long as the client takes to read it.
+ * At most {@code export.max-concurrent} exports run at once, so slow downloads never hold all the connections of the
+ * read-only pool and other reads keep getting served. Exports beyond that wait up to {@code export.wait-timeout} for
+ * one of them to finish.
+ */
+@Component
+public class DuckDbMeasurementExporter implements MeasurementExporter {
+    private static final String CSV_HEADER = "id,sensor_id,city_id,pm10,co,no2,timestamp";
+    private static final int CSV_COLUMNS = 7;
+    private static final String TEMP_FILE_PREFIX = "measurements-export-";
+    private static final String PARQUET_SUFFIX = ".parquet";
+
+    private final DuckDbConnectionManager connectionManager;
+    private final BufferAllocator allocator;
+    private final int fetchSize;
+    private final Semaphore exportPermits;
+    private final Duration waitTimeout;
+
+    public DuckDbMeasurementExporter(DuckDbConnectionManager connectionManager,
+                                     BufferAllocator allocator,
+                                     @Value("${export.fetch-size}") int fetchSize,
+                                     @Value("${export.max-concurrent}") int maxConcurrentExports,
+                                     @Value("${export.wait-timeout}") Duration waitTimeout) {
+        this.connectionManager = connectionManager;
+        this.allocator = allocator;
+        this.fetchSize = fetchSize;
+        this.exportPermits = new Semaphore(maxConcurrentExports, true);
+        this.waitTimeout = waitTimeout;
+    }
+
+    @Override
+    public void export(MeasurementExport export, OutputStream output) {
+        String sql = EXPORT_MEASUREMENTS_SQL.formatted(export.cityId() == null ? "" : EXPORT_CITY_CONDITION);
+        executeExport(conn -> {
+            try {
+                switch (export.format()) {
+                    case CSV -> streamResults(conn, () -> exportCsv(conn, sql, export, output));
+                    case ARROW -> streamResults(conn, () -> exportArrow(conn, sql, export, output));
+                    case PARQUET -> exportParquet(conn, sql, export, output);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    @Override
+    public void exportWorstNo2CitiesYearToYear(OutputStream output) {
+        executeExport(conn -> {
+            try {
+                streamResults(conn, () -> {
+                    try (PreparedStatement stmt = conn.prepareStatement(HIGHER_NO2_CITIES_PREVIOUS_MONTH_YEAR_TO_YEAR_SQL)) {
+                        writeArrow(stmt, output);
+                    }
+                });
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private void executeExport(DuckDbConnectionManager.ConnectionConsumer export) {
+        try {
+            if (!exportPermits.tryAcquire(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new DatastoreException("Too many exports in progress, try again later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DatastoreException("Interrupted while waiting for other exports to finish", ex);
+        }
+        try {
+            connectionManager.executeWithoutResult(export);
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    private void exportCsv(DuckDBConnection conn, String sql, MeasurementExport export, OutputStream output)
+            throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            setParameters(stmt, export);
+            ResultSet resultSet = stmt.executeQuery();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                int rows = 0;
+                while (resultSet.next()) {
+                    for (int column = 1; column <= CSV_COLUMNS; column++) {
+                        if (column > 1) {
+                            writer.write(',');
+                        }
+                        // None of the columns can contain a comma, a quote or a line break
+                        writer.write(resultSet.getString(column));
+                    }
+                    writer.write('\n');
+                    if (++rows % fetchSize == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                stmt.cancel();
+                throw ex;
+            }
+        }
+    }
+
+    private void exportArrow(DuckDBConnection conn, String sql, MeasurementExport export, OutputStream output)
+            throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            setParameters(stmt, export);
+            writeArrow(stmt, output);
+        }
+    }
+
+    private void writeArrow(PreparedStatement stmt, OutputStream output) throws SQLException, IOException {
+        var resultSet = (DuckDBResultSet) stmt.executeQuery();
+        try (BufferAllocator exportAllocator = allocator.newChildAllocator("export", 0, Long.MAX_VALUE);
+             ArrowReader reader = (ArrowReader) resultSet.arrowExportStream(exportAllocator, fetchSize);
+             ArrowStreamWriter writer = new ArrowStreamWriter(reader.getVectorSchemaRoot(), null, output)) {
+            writer.start();
+            while (reader.loadNextBatch()) {
+                writer.writeBatch();
+            }
+            writer.end();
+        } catch (IOException ex) {
+            stmt.cancel();
+            throw ex;
+        }
+    }
+
+    private void exportParquet(DuckDBConnection conn, String sql, MeasurementExport export, OutputStream output)
+            throws SQLException, IOException {
+        Path file = Files.createTempFile(TEMP_FILE_PREFIX, PARQUET_SUFFIX);
+        try {
+            try (PreparedStatement stmt = conn.prepareStatement(EXPORT_TO_PARQUET_SQL.formatted(sql, file))) {
+                setParameters(stmt, export);
+                stmt.execute();
+            }
+            Files.copy(file, output);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void setParameters(PreparedStatement stmt, MeasurementExport export) throws SQLException {
+        stmt.setTimestamp(1, Timestamp.from(export.from()));
+        stmt.setTimestamp(2, Timestamp.from(export.to()));
+        setMonthOf(stmt, 3, toStoredDateTime(export.from()));
+        setMonthOf(stmt, 6, toStoredDateTime(export.to()));
+        if (export.cityId() != null) {
+            stmt.setObject(9, export.cityId());
+        }
+    }
+
+    private static void streamResults(DuckDBConnection conn, StreamedExport export) throws SQLException, IOException {
+        setStreamResults(conn, true);
+        try {
+            export.run();
+        } finally {
+            // The connection goes back to the pool, the other queries expect their results complete
+            setStreamResults(conn, false);
+        }
+    }
+
+    private static void setStreamResults(DuckDBConnection conn, boolean enabled) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(SET_STREAM_RESULTS_SQL.formatted(enabled));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamedExport {
+        void run() throws SQLException, IOException;
+    }
+}
@@ -2,29 +2,49 @@ package com.interview.monitor.adapters.outbound.db;
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
-import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesPointResponseDTO;
+import com.interview.monitor.domain.model.CityMinuteStats;
+import com.interview.monitor.domain.model.LastHourWindow;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import com.interview.monitor.domain.model.Pollutant;
+import com.interview.monitor.domain.model.SeriesResolution;
+import com.interview.monitor.domain.model.ValueStats;
 import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import org.duckdb.DuckDBAppender;
 import org.duckdb.DuckDBConnection;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static com.interview.monitor.adapters.outbound.db.SqlQueries.*;
 
 @Repository
 public class DuckDbMeasurementRepository implements MeasurementRepository {
-    private static final String ID = "id";
+    private static final String RESPONSE_CITY = "city";
+    private static final String RESPONSE_CITY_ID = "cityId";
     private static final String COUNTRY = "country";
     private static final String NAME = "name";
     private static final String COLUMN_NAME_CO = "co";
     private static final String COLUMN_NAME_PM10 = "pm10";
+    private static final String COLUMN_NAME_NO2 = "no2";
+    private static final String RISING_FLAG_PREFIX = "rising_";
     private static final String AVG_NO_2 = "avg_no2";
     private static final String MAX_NO_2 = "max_no2";
     private static final String MIN_NO_2 = "min_no2";
@@ -34,140 +54,334 @@ public class DuckDbMeasurementRepository implements MeasurementRepository {
     private static final String AVG_PM_10 = "avg_pm10";
     private static final String MAX_PM_10 = "max_pm10";
     private static final String MIN_PM_10 = "min_pm10";
+    private static final String CITY_ID = "city_id";
+    private static final String MINUTE = "minute";
+    private static final String BUCKET = "bucket";
+    private static final String TEMP_CATALOG = "temp";
+    private static final String COUNT = "count";
+    private static final String SUM_NO_2 = "sum_no2";
+    private static final String SUM_CO = "sum_co";
+    private static final String SUM_PM_10 = "sum_pm10";
     private static final String AVG_NO_2_CURRENT = "avgNo2Current";
     private static final String AVG_NO_2_YEAR_BEFORE = "avgNo2YearBefore";
-    private static final String PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE = "Problems occurred when accessing database";
 
-    private final String datasourceUrl;
+    private final DuckDbConnectionManager connectionManager;
+    private final Clock clock;
 
-    public DuckDbMeasurementRepository(@Value("${spring.datasource.url}") String datasourceUrl) {
-        this.datasourceUrl = datasourceUrl;
+    public DuckDbMeasurementRepository(DuckDbConnectionManager connectionManager, Clock clock) {
+        this.connectionManager = connectionManager;
+        this.clock = clock;
     }
 
     @Override
-    public void save(Measurement measurement) {
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(INSERT_MEASUREMENT_SQL)) {
-            stmt.setObject(1, measurement.sensorId());
-            stmt.setObject(2, measurement.cityId());
-            stmt.setBigDecimal(3, measurement.pm10());
-            stmt.setBigDecimal(4, measurement.co());
-            stmt.setBigDecimal(5, measurement.no2());
-            stmt.setTimestamp(6, Timestamp.from(measurement.timestamp()));
+    public boolean save(Measurement measurement) {
+        return !saveAll(List.of(measurement)).isEmpty();
+    }
 
-            stmt.execute();
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
+    /**
+     * Streams the measurements into a staging table through the native appender instead of binding every row to
+     * an insert statement. The ones already saved, or repeated within the list, are removed from the staging table
+     * with a single anti-join and the rest is copied to the measurements table with a single insert.
+     */
+    @Override
+    public List<Measurement> saveAll(List<Measurement> measurements) {
+        if (measurements.isEmpty()) {
+            return List.of();
         }
+
+        return connectionManager.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                // Replaces whatever a failed save could have left behind on this pooled connection
+                stmt.execute(CREATE_MEASUREMENTS_STAGING_SQL);
+                stage(conn, measurements);
+                List<Measurement> saved = withoutDuplicates(conn, measurements);
+                if (!saved.isEmpty()) {
+                    stmt.execute(INSERT_STAGED_MEASUREMENTS_SQL);
+                    upsertMonthlyStats(conn, saved);
+                    upsertSeries(stmt);
+                }
+                stmt.execute(DROP_MEASUREMENTS_STAGING_SQL);
+                return saved;
+            }
+        });
     }
 
-    @Override
-    public void saveAll(List<Measurement> measurements) {
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(INSERT_MEASUREMENT_SQL)) {
-            for (Measurement measurement : measurements) {
-                stmt.setObject(1, measurement.sensorId());
-                stmt.setObject(2, measurement.cityId());
-                stmt.setBigDecimal(3, measurement.pm10());
-                stmt.setBigDecimal(4, measurement.co());
-                stmt.setBigDecimal(5, measurement.no2());
-                stmt.setTimestamp(6, Timestamp.from(measurement.timestamp()));
-
-                stmt.addBatch();
+    private static void stage(DuckDBConnection conn, List<Measurement> measurements) throws SQLException {
+        try (DuckDBAppender appender = conn.createAppender(TEMP_CATALOG, DuckDBConnection.DEFAULT_SCHEMA, MEASUREMENTS_STAGING_TABLE)) {
+            for (int i = 0; i < measurements.size(); i++) {
+                Measurement measurement = measurements.get(i);
+                appender.beginRow();
+                appender.append(i);
+                appender.append(measurement.cityId());
+                appender.append(measurement.sensorId());
+                // Values already are the unscaled DECIMAL(10, 2) the columns hold
+                appender.appendDecimal(measurement.pm10());
+                appender.appendDecimal(measurement.co());
+                appender.appendDecimal(measurement.no2());
+                appender.append(toStoredDateTime(measurement.timestamp()));
+                appender.endRow();
+            }
+            appender.flush();
+        }
+    }
+
+    /**
+     * Measurements left in the staging table, in the order they were given, after the duplicates are removed from it.
+     */
+    private static List<Measurement> withoutDuplicates(DuckDBConnection conn, List<Measurement> measurements) throws SQLException {
+        BitSet duplicates = new BitSet(measurements.size());
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet resultSet = stmt.executeQuery(DELETE_DUPLICATE_STAGED_MEASUREMENTS_SQL);
+            while (resultSet.next()) {
+                duplicates.set(resultSet.getInt(1));
             }
+        }
+        if (duplicates.isEmpty()) {
+            return measurements;
+        }
 
-            stmt.executeBatch();
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
+        List<Measurement> saved = new ArrayList<>(measurements.size() - duplicates.cardinality());
+        for (int i = duplicates.nextClearBit(0); i < measurements.size(); i = duplicates.nextClearBit(i + 1)) {
+            saved.add(measurements.get(i));
         }
+        return saved;
     }
 
-    @Override
-    public List<String> queryRisingCO5MCities(UUID regionId) {
-        return queryRisingCities(RISING_REGION_AVG_5MONTH_SQL.formatted(COLUMN_NAME_CO), regionId);
+    /**
+     * Keeps 'city_monthly_stats' in step with the measurements table. It's called on the same connection right after
+     * the measurements are written, so both changes are committed or rolled back together.
+     */
+    private static void upsertMonthlyStats(Connection conn, List<Measurement> measurements) throws SQLException {
+        Collection<CityMonthlyStatsDelta> deltas = CityMonthlyStatsDelta.of(measurements);
+        String values = String.join(", ", Collections.nCopies(deltas.size(), CITY_MONTHLY_STATS_VALUES_ROW));
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_CITY_MONTHLY_STATS_SQL.formatted(values))) {
+            int index = 1;
+            for (CityMonthlyStatsDelta delta : deltas) {
+                stmt.setObject(index++, delta.cityId());
+                stmt.setDate(index++, Date.valueOf(delta.month()));
+                stmt.setLong(index++, delta.count());
+                index = setStats(stmt, index, delta.pm10());
+                index = setStats(stmt, index, delta.co());
+                index = setStats(stmt, index, delta.no2());
+                stmt.setLong(index++, delta.daysMask());
+            }
+
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Keeps the downsampled series in step with the measurements table, in the same way as
+     * {@link #upsertMonthlyStats(Connection, List)}. The staged measurements are merged into each of the series with
+     * a single statement.
+     */
+    private static void upsertSeries(Statement stmt) throws SQLException {
+        for (SeriesResolution resolution : SeriesResolution.values()) {
+            stmt.execute(MERGE_SERIES_STAGING_SQL.formatted(seriesTable(resolution), seriesInterval(resolution)));
+        }
+    }
+
+    private static int setStats(PreparedStatement stmt, int index, CityMonthlyStatsDelta.Stats stats) throws SQLException {
+        stmt.setBigDecimal(index, MeasurementValue.toDecimal(stats.min()));
+        stmt.setBigDecimal(index + 1, MeasurementValue.toDecimal(stats.max()));
+        stmt.setBigDecimal(index + 2, MeasurementValue.toDecimal(stats.sum()));
+        return index + 3;
+    }
+
+    static LocalDateTime toStoredDateTime(Instant timestamp) {
+        // Same local wall clock time as stored by PreparedStatement#setTimestamp
+        return LocalDateTime.ofInstant(timestamp, ZoneId.systemDefault());
     }
 
     @Override
-    public List<String> queryRisingPM105MCities(UUID regionId) {
-        return queryRisingCities(RISING_REGION_AVG_5MONTH_SQL.formatted(COLUMN_NAME_PM10), regionId);
+    public Map<Pollutant, List<String>> queryRising5MCities(UUID regionId, Set<Pollutant> pollutants) {
+        var results = new EnumMap<Pollutant, List<String>>(Pollutant.class);
+        pollutants.forEach(pollutant -> results.put(pollutant, new ArrayList<>()));
+        if (pollutants.isEmpty()) {
+            return results;
+        }
+
+        String sql = RISING_REGION_AVG_5MONTH_SQL.formatted(
+                risingColumns(RISING_AVG_COLUMN, pollutants),
+                risingColumns(RISING_TREND_COLUMN, pollutants),
+                risingColumns(RISING_FLAG_COLUMN, pollutants));
+        return connectionManager.execute(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setObject(1, regionId);
+
+                ResultSet resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    for (Pollutant pollutant : pollutants) {
+                        if (resultSet.getBoolean(RISING_FLAG_PREFIX + columnName(pollutant))) {
+                            results.get(pollutant).add(resultSet.getString(NAME));
+                        }
+                    }
+                }
+                return results;
+            }
+        });
     }
 
     @Override
     public Optional<CityStatsResponseDTO> queryCityStatsLastHour(UUID cityId) {
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(CITY_STATS_LAST_HOUR_SQL)) {
-            stmt.setObject(1, cityId);
-
-            ResultSet resultSet = stmt.executeQuery();
-            resultSet.next();
-
-            if (!containsValues(resultSet)) {
-                return Optional.empty();
-            } else {
-                return Optional.of(new CityStatsResponseDTO(
-                        getBigDecimal(resultSet, AVG_NO_2),
-                        getBigDecimal(resultSet, MAX_NO_2),
-                        getBigDecimal(resultSet, MIN_NO_2),
-                        getBigDecimal(resultSet, AVG_CO),
-                        getBigDecimal(resultSet, MAX_CO),
-                        getBigDecimal(resultSet, MIN_CO),
-                        getBigDecimal(resultSet, AVG_PM_10),
-                        getBigDecimal(resultSet, MAX_PM_10),
-                        getBigDecimal(resultSet, MIN_PM_10)
-                ));
+        return connectionManager.execute(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(CITY_STATS_LAST_HOUR_SQL)) {
+                // The same window the in-memory statistics of the last hour are kept for
+                LastHourWindow window = LastHourWindow.at(clock.instant());
+                stmt.setObject(1, cityId);
+                stmt.setTimestamp(2, Timestamp.from(window.from()));
+                stmt.setTimestamp(3, Timestamp.from(window.until()));
+                setMonthOf(stmt, 4, toStoredDateTime(window.from()));
+
+                ResultSet resultSet = stmt.executeQuery();
+                resultSet.next();
+
+                if (!containsValues(resultSet)) {
+                    return Optional.empty();
+                } else {
+                    return Optional.of(new CityStatsResponseDTO(
+                            getBigDecimal(resultSet, AVG_NO_2),
+                            getBigDecimal(resultSet, MAX_NO_2),
+                            getBigDecimal(resultSet, MIN_NO_2),
+                            getBigDecimal(resultSet, AVG_CO),
+                            getBigDecimal(resultSet, MAX_CO),
+                            getBigDecimal(resultSet, MIN_CO),
+                            getBigDecimal(resultSet, AVG_PM_10),
+                            getBigDecimal(resultSet, MAX_PM_10),
+                            getBigDecimal(resultSet, MIN_PM_10)
+                    ));
+                }
             }
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
-        }
+        });
+    }
+
+    @Override
+    public List<CityMinuteStats> queryCityMinuteStatsSince(Instant since) {
+        return connectionManager.execute(conn -> {
+            var results = new ArrayList<CityMinuteStats>();
+            try (PreparedStatement stmt = conn.prepareStatement(CITY_MINUTE_STATS_SINCE_SQL)) {
+                stmt.setTimestamp(1, Timestamp.from(since));
+                setMonthOf(stmt, 2, toStoredDateTime(since));
+
+                ResultSet resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    long count = resultSet.getLong(COUNT);
+                    results.add(new CityMinuteStats(
+                            resultSet.getObject(CITY_ID, UUID.class),
+                            resultSet.getTimestamp(MINUTE).toInstant(),
+                            valueStats(resultSet, MIN_PM_10, MAX_PM_10, SUM_PM_10, count),
+                            valueStats(resultSet, MIN_CO, MAX_CO, SUM_CO, count),
+                            valueStats(resultSet, MIN_NO_2, MAX_NO_2, SUM_NO_2, count)
+                    ));
+                }
+                return results;
+            }
+        });
+    }
+
+    /**
+     * Reads the series of the given resolution only, so the number of rows read depends on the number of buckets in
+     * the time range and not on the number of measurements taken in it.
+     */
+    @Override
+    public List<SeriesPointResponseDTO> queryCitySeries(UUID cityId, Instant from, Instant to, SeriesResolution resolution) {
+        String sql = CITY_SERIES_SQL.formatted(seriesTable(resolution), seriesInterval(resolution));
+        return connectionManager.execute(conn -> {
+            var results = new ArrayList<SeriesPointResponseDTO>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setObject(1, cityId);
+                stmt.setTimestamp(2, Timestamp.from(from));
+                stmt.setTimestamp(3, Timestamp.from(to));
+
+                ResultSet resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    results.add(new SeriesPointResponseDTO(
+                            resultSet.getTimestamp(BUCKET).toInstant(),
+                            resultSet.getLong(COUNT),
+                            getBigDecimal(resultSet, AVG_NO_2),
+                            getBigDecimal(resultSet, MAX_NO_2),
+                            getBigDecimal(resultSet, MIN_NO_2),
+                            getBigDecimal(resultSet, AVG_CO),
+                            getBigDecimal(resultSet, MAX_CO),
+                            getBigDecimal(resultSet, MIN_CO),
+                            getBigDecimal(resultSet, AVG_PM_10),
+                            getBigDecimal(resultSet, MAX_PM_10),
+                            getBigDecimal(resultSet, MIN_PM_10)
+                    ));
+                }
+                return results;
+            }
+        });
+    }
+
+    private static String seriesTable(SeriesResolution resolution) {
+        return switch (resolution) {
+            case MINUTE -> "measurements_1m";
+            case HOUR -> "measurements_1h";
+            case DAY -> "measurements_1d";
+        };
+    }
+
+    private static String seriesInterval(SeriesResolution resolution) {
+        return "%d minutes".formatted(resolution.step().toMinutes());
     }
 
     @Override
     public void generateMonthlyHighestPM10Report(String filename) {
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(GENERATE_MONTHLY_HIGHEST_PM10_REPORT_SQL.formatted(filename))) {
-            stmt.execute();
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
-        }
+        connectionManager.executeWithoutResult(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(GENERATE_MONTHLY_HIGHEST_PM10_REPORT_SQL.formatted(filename))) {
+                stmt.execute();
+            }
+        });
     }
 
     @Override
     public List<CityNo2YearToYearResponseDTO> queryWorstNo2CitiesYearToYear() {
-        var results = new ArrayList<CityNo2YearToYearResponseDTO>();
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(HIGHER_NO2_CITIES_PREVIOUS_MONTH_YEAR_TO_YEAR_SQL)) {
+        return connectionManager.execute(conn -> {
+            var results = new ArrayList<CityNo2YearToYearResponseDTO>();
+            try (PreparedStatement stmt = conn.prepareStatement(HIGHER_NO2_CITIES_PREVIOUS_MONTH_YEAR_TO_YEAR_SQL)) {
 
-            ResultSet resultSet = stmt.executeQuery();
-            while (resultSet.next()) {
-                var cityNo2 = new CityNo2YearToYearResponseDTO(
-                        resultSet.getString(NAME),
-                        resultSet.getObject(ID, UUID.class),
-                        resultSet.getString(COUNTRY),
-                        resultSet.getBigDecimal(AVG_NO_2_CURRENT),
-                        resultSet.getBigDecimal(AVG_NO_2_YEAR_BEFORE)
-                );
-                results.add(cityNo2);
+                ResultSet resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    var cityNo2 = new CityNo2YearToYearResponseDTO(
+                            resultSet.getString(RESPONSE_CITY),
+                            resultSet.getObject(RESPONSE_CITY_ID, UUID.class),
+                            resultSet.getString(COUNTRY),
+                            resultSet.getBigDecimal(AVG_NO_2_CURRENT),
+                            resultSet.getBigDecimal(AVG_NO_2_YEAR_BEFORE)
+                    );
+                    results.add(cityNo2);
+                }
+                return results;
             }
-            return results;
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
-        }
+        });
     }
 
-    private ArrayList<String> queryRisingCities(String sql, UUID regionId) {
-        var results = new ArrayList<String>();
-        try (var conn = getDuckDBConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setObject(1, regionId);
+    /**
+     * Binds the year, year and month of the time, as expected by the conditions on the month of all_measurements.
+     */
+    static void setMonthOf(PreparedStatement stmt, int index, LocalDateTime time) throws SQLException {
+        stmt.setInt(index, time.getYear());
+        stmt.setInt(index + 1, time.getYear());
+        stmt.setInt(index + 2, time.getMonthValue());
+    }
 
-            ResultSet resultSet = stmt.executeQuery();
-            while (resultSet.next()) {
-                results.add(resultSet.getString(NAME));
-            }
-            return results;
-        } catch (SQLException ex) {
-            throw new DatastoreException(PROBLEMS_OCCURRED_WHEN_ACCESSING_DATABASE, ex);
-        }
+    private static String risingColumns(String column, Set<Pollutant> pollutants) {
+        return pollutants.stream()
+                .map(pollutant -> column.formatted(columnName(pollutant)))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String columnName(Pollutant pollutant) {
+        return switch (pollutant) {
+            case PM10 -> COLUMN_NAME_PM10;
+            case CO -> COLUMN_NAME_CO;
+            case NO2 -> COLUMN_NAME_NO2;
+        };
+    }
+
+    private static ValueStats valueStats(ResultSet rs, String min, String max, String sum, long count) throws SQLException {
+        return new ValueStats(getMeasurementValue(rs, min), getMeasurementValue(rs, max), getMeasurementValue(rs, sum), count);
     }
 
     private static boolean containsValues(ResultSet resultSet) throws SQLException {
@@ -175,12 +389,19 @@ public class DuckDbMeasurementRepository implements MeasurementRepository {
         return getBigDecimal(resultSet, AVG_NO_2) != null;
     }
 
+    /**
+     * Reads an average, computed by the database as a double, or a DECIMAL column without going through its text.
+     */
     private static BigDecimal getBigDecimal(ResultSet rs, String columnName) throws SQLException {
-        String value = rs.getString(columnName);
-        return rs.wasNull() ? null : new BigDecimal(value);
+        Object value = rs.getObject(columnName);
+        if (value instanceof Double doubleValue) {
+            // Same digits as the text of the double, which new BigDecimal(double) doesn't keep
+            return BigDecimal.valueOf(doubleValue);
+        }
+        return (BigDecimal) value;
     }
 
-    private DuckDBConnection getDuckDBConnection() throws SQLException {
-        return (DuckDBConnection) DriverManager.getConnection(datasourceUrl);
+    private static long getMeasurementValue(ResultSet rs, String columnName) throws SQLException {
+        return MeasurementValue.valueOf(rs.getBigDecimal(columnName));
     }
 }
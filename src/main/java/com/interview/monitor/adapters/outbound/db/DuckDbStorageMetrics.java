@@ -0,0 +1,69 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Sizes of the database file and of its write-ahead log. Read from the file system on every scrape, which doesn't
+ * take a connection from the pool. Nothing is published for an in-memory database.
+ */
+@Component
+public class DuckDbStorageMetrics implements MeterBinder {
+    private static final String URL_PREFIX = "jdbc:duckdb:";
+    private static final String IN_MEMORY = ":memory:";
+    private static final String WAL_SUFFIX = ".wal";
+
+    // Gauges keep their state objects only weakly referenced, so both paths are held here
+    private final Optional<Path> databaseFile;
+    private final Optional<Path> walFile;
+
+    public DuckDbStorageMetrics(@Value("${spring.datasource.url}") String datasourceUrl) {
+        this.databaseFile = databaseFileOf(datasourceUrl);
+        this.walFile = databaseFile.map(file -> file.resolveSibling(file.getFileName() + WAL_SUFFIX));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        databaseFile.ifPresent(file -> Gauge.builder("duckdb.database.size", file, DuckDbStorageMetrics::sizeOf)
+                .description("Size of the database file")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry));
+        walFile.ifPresent(file -> Gauge.builder("duckdb.wal.size", file, DuckDbStorageMetrics::sizeOf)
+                .description("Size of the write-ahead log, not yet checkpointed into the database file")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry));
+    }
+
+    static Optional<Path> databaseFileOf(String datasourceUrl) {
+        String database = datasourceUrl.substring(URL_PREFIX.length());
+        int options = database.indexOf('?');
+        if (options >= 0) {
+            database = database.substring(0, options);
+        }
+        if (database.isEmpty() || database.startsWith(IN_MEMORY)) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(database));
+    }
+
+    private static double sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException ex) {
+            // The log is removed once it's checkpointed
+            return 0;
+        } catch (IOException ex) {
+            return Double.NaN;
+        }
+    }
+}
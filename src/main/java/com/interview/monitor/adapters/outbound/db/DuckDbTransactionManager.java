@@ -0,0 +1,47 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * {@link JdbcTransactionManager} which commits and rolls back through {@link DuckDbConnectionManager}, so transactions
+ * ended on a virtual thread are ended by DuckDB on a platform thread, like every other DuckDB call. Committing a large
+ * write would otherwise pin the carrier thread for as long as DuckDB takes to write it.
+ * <p>
+ * Transactions are begun lazily, when their connection is first unwrapped by {@link DuckDbConnectionManager}, which
+ * already happens on a platform thread.
+ */
+public class DuckDbTransactionManager extends JdbcTransactionManager {
+    private final DuckDbConnectionManager connectionManager;
+
+    public DuckDbTransactionManager(DataSource dataSource, DuckDbConnectionManager connectionManager) {
+        super(dataSource);
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        endTransaction(() -> super.doCommit(status));
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        endTransaction(() -> super.doRollback(status));
+    }
+
+    private void endTransaction(Runnable end) {
+        try {
+            connectionManager.call(() -> {
+                end.run();
+                return null;
+            });
+        } catch (SQLException ex) {
+            // Not thrown by the JdbcTransactionManager itself, which translates them already
+            throw new TransactionSystemException("Could not end JDBC transaction", ex);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import org.duckdb.DuckDBConnection;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hands out connections whose transactions are DuckDB read-only transactions, so every write made in them fails,
+ * including the ones made through the {@link DuckDBConnection} the repositories unwrap. DuckDB can't make a single
+ * connection read-only, and its driver begins read-write transactions of its own once auto-commit is off. The driver
+ * is therefore always left in auto-commit mode, and transactions are begun and ended with SQL statements instead.
+ * Like the driver's own, transactions are begun by the first statement after auto-commit is turned off or after
+ * a commit or a rollback, or the first time the connection is unwrapped, so neither taking the connection from the
+ * pool nor giving it back needs DuckDB.
+ * <p>
+ * Statements run in auto-commit mode are not checked. Connections of the read-only pool are only handed out to
+ * read-only Spring transactions, which always turn auto-commit off first.
+ */
+public class ReadOnlyTransactionDataSource extends DelegatingDataSource {
+    private static final String BEGIN_READ_ONLY_TRANSACTION_SQL = "BEGIN TRANSACTION READ ONLY";
+    private static final String COMMIT_SQL = "COMMIT";
+    private static final String ROLLBACK_SQL = "ROLLBACK";
+
+    public ReadOnlyTransactionDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return readOnly(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return readOnly(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection readOnly(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ReadOnlyTransactionDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ReadOnlyTransactionHandler(target));
+    }
+
+    private static final class ReadOnlyTransactionHandler implements InvocationHandler {
+        private final Connection target;
+        private boolean autoCommit = true;
+        private boolean transactionRunning;
+
+        private ReadOnlyTransactionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "getAutoCommit" -> {
+                    return autoCommit;
+                }
+                case "setAutoCommit" -> {
+                    setAutoCommit((Boolean) args[0]);
+                    return null;
+                }
+                case "commit" -> {
+                    commitOrRollback(COMMIT_SQL);
+                    return null;
+                }
+                case "rollback" -> {
+                    if (args == null) {
+                        commitOrRollback(ROLLBACK_SQL);
+                        return null;
+                    }
+                }
+                case "isReadOnly" -> {
+                    return true;
+                }
+                case "setReadOnly" -> {
+                    // Always read-only, whatever is asked for
+                    return null;
+                }
+                case "unwrap", "createStatement", "prepareStatement", "prepareCall" -> {
+                    if (!autoCommit && !transactionRunning) {
+                        beginTransaction();
+                    }
+                }
+                case "close" -> {
+                    if (transactionRunning && !target.isClosed()) {
+                        endTransaction(ROLLBACK_SQL);
+                    }
+                }
+                default -> {
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+
+        private void setAutoCommit(boolean autoCommit) throws SQLException {
+            if (autoCommit == this.autoCommit) {
+                return;
+            }
+            this.autoCommit = autoCommit;
+            if (autoCommit && transactionRunning) {
+                // Like the driver, commits the transaction in progress when auto-commit is turned back on
+                endTransaction(COMMIT_SQL);
+            }
+        }
+
+        private void commitOrRollback(String sql) throws SQLException {
+            if (autoCommit) {
+                throw new SQLException("Connection is in auto-commit mode, there is no transaction to end");
+            }
+            if (transactionRunning) {
+                endTransaction(sql);
+            }
+        }
+
+        private void beginTransaction() throws SQLException {
+            execute(BEGIN_READ_ONLY_TRANSACTION_SQL);
+            transactionRunning = true;
+        }
+
+        private void endTransaction(String sql) throws SQLException {
+            transactionRunning = false;
+            execute(sql);
+        }
+
+        private void execute(String sql) throws SQLException {
+            try (Statement stmt = target.createStatement()) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call of the repository ports, tagged with the repository, the method called as the query name and
+ * whether it succeeded. Timers publish histograms, so latency percentiles can be aggregated across instances.
+ */
+@Aspect
+@Component
+public class RepositoryTimingAspect {
+    static final String QUERY_TIMER = "duckdb.query";
+    private static final String REPOSITORY_SUFFIX = "Repository";
+
+    private final MeterRegistry meterRegistry;
+    // Looked up on every call, so the timer ids aren't built again each time
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public RepositoryTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.interview.monitor.domain.ports.outbound.*Repository.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Outcome outcome = Outcome.ERROR;
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } finally {
+            timerOf(new TimerKey(method, outcome)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timerOf(TimerKey key) {
+        return timers.computeIfAbsent(key, k -> Timer.builder(QUERY_TIMER)
+                .description("Time taken by a single repository call")
+                .tag("repository", portOf(k.method().getDeclaringClass()))
+                .tag("query", k.method().getName())
+                .tag("outcome", k.outcome().name())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Name of the port rather than of the adapter, so the tags don't change along with the implementation.
+     */
+    private static String portOf(Class<?> repositoryType) {
+        return ClassUtils.getAllInterfacesForClassAsSet(repositoryType).stream()
+                .map(Class::getSimpleName)
+                .filter(name -> name.endsWith(REPOSITORY_SUFFIX))
+                .findFirst()
+                .orElse(repositoryType.getSimpleName());
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        ERROR
+    }
+
+    private record TimerKey(Method method, Outcome outcome) {
+    }
+}
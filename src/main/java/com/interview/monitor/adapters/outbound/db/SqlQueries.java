@@ -1,55 +1,222 @@
 package com.interview.monitor.adapters.outbound.db;
 
 public final class SqlQueries {
-    public static final String INSERT_MEASUREMENT_SQL = """
+    /**
+     * Connection scoped table the measurements are appended to before being written to the measurements table and
+     * merged into the downsampled series. The ordinal is the position of the measurement in the saved list.
+     */
+    public static final String MEASUREMENTS_STAGING_TABLE = "measurements_staging";
+
+    public static final String CREATE_MEASUREMENTS_STAGING_SQL = """
+            CREATE OR REPLACE TEMP TABLE measurements_staging AS
+            SELECT 0 AS ordinal, city_id, sensor_id, pm10, co, no2, timestamp FROM measurements LIMIT 0
+            """;
+
+    /**
+     * Remove the staged measurements whose sensor and timestamp are already saved, and all but the first one of those
+     * repeated within the staged ones, returning the ordinals of the removed ones. Saved measurements are probed with
+     * the staged keys only, the hash table of the staged ones also carries their sensor and timestamp bounds down to
+     * the scan of the measurements table, which skips the row groups outside of them.
+     */
+    public static final String DELETE_DUPLICATE_STAGED_MEASUREMENTS_SQL = """
+            DELETE FROM measurements_staging
+            WHERE ordinal NOT IN (
+                SELECT MIN(s.ordinal)
+                FROM measurements_staging s
+                ANTI JOIN (
+                    SELECT sensor_id, timestamp
+                    FROM measurements
+                    SEMI JOIN measurements_staging USING (sensor_id, timestamp)
+                ) m USING (sensor_id, timestamp)
+                GROUP BY s.sensor_id, s.timestamp
+            )
+            RETURNING ordinal
+            """;
+
+    public static final String INSERT_STAGED_MEASUREMENTS_SQL = """
             INSERT INTO measurements (id, sensor_id, city_id, pm10, co, no2, timestamp)
-            VALUES (nextval('measurements_seq'), ?, ?, ?, ?, ?, ?)
+            SELECT nextval('measurements_seq'), sensor_id, city_id, pm10, co, no2, timestamp
+            FROM measurements_staging
             """;
 
-    public static final String UPSERT_CITY_SQL = """
-            INSERT INTO cities (id, name, country, region, region_id)
-            VALUES (?, ?, ?, ?, ?)
+    public static final String DROP_MEASUREMENTS_STAGING_SQL = """
+            DROP TABLE IF EXISTS measurements_staging
+            """;
+
+    /**
+     * Connection scoped table the cities are appended to before being merged into the cities table.
+     */
+    public static final String CITIES_STAGING_TABLE = "cities_staging";
+
+    public static final String CREATE_CITIES_STAGING_SQL = """
+            CREATE OR REPLACE TEMP TABLE cities_staging AS
+            SELECT id, name, country, region, region_id FROM cities LIMIT 0
+            """;
+
+    /**
+     * Insert the staged cities which are new, and update the ones whose hash differs from the stored one. Unchanged
+     * cities aren't written at all.
+     */
+    public static final String MERGE_CITIES_STAGING_SQL = """
+            INSERT INTO cities (id, name, country, region, region_id, record_hash)
+            SELECT s.id, s.name, s.country, s.region, s.region_id, hash(s.name, s.country, s.region)
+            FROM cities_staging s
+            LEFT JOIN cities c ON c.id = s.id
+            WHERE c.record_hash IS DISTINCT FROM hash(s.name, s.country, s.region)
             ON CONFLICT (id) DO
             UPDATE SET
                 name = EXCLUDED.name,
                 country = EXCLUDED.country,
-                region = EXCLUDED.region
+                region = EXCLUDED.region,
+                record_hash = EXCLUDED.record_hash
+            """;
+
+    public static final String DROP_CITIES_STAGING_SQL = """
+            DROP TABLE IF EXISTS cities_staging
+            """;
+
+    /**
+     * Measurements of the measurements table together with the archived ones, filtering by the 'year' and 'month'
+     * columns skips the archive files of other months. The union with the archive, or nothing while the archive is
+     * empty, should be interpolated into the query below (see {@link #ARCHIVED_MEASUREMENTS_UNION}).
+     */
+    public static final String CREATE_ALL_MEASUREMENTS_VIEW_SQL = """
+            CREATE OR REPLACE VIEW all_measurements AS
+            SELECT id, sensor_id, city_id, pm10, co, no2, timestamp, year(timestamp) AS year, month(timestamp) AS month
+            FROM measurements
+            %s
             """;
 
     /**
-     * List all cities from the last 5 months when there was a constant upward trend for one of the air quality values,
-     * meaning for 5 consecutive months the value of that column was rising for that specific city.
-     * Specific column name should be interpolated into the query below (used as avg_val).
+     * Archived measurements of {@link #CREATE_ALL_MEASUREMENTS_VIEW_SQL}, the archive files pattern should be
+     * interpolated into the query below.
+     */
+    public static final String ARCHIVED_MEASUREMENTS_UNION = """
+            UNION ALL
+            SELECT id, sensor_id, city_id, pm10, co, no2, timestamp, year, month
+            FROM read_parquet('%s', hive_partitioning = true,
+                              hive_types = {'year': BIGINT, 'month': BIGINT, 'city_bucket': UBIGINT})
+            """;
+
+    public static final String COUNT_ARCHIVE_FILES_SQL = """
+            SELECT COUNT(*) FROM glob('%s')
+            """;
+
+    /**
+     * Write all the measurements taken before the given time to Parquet files partitioned by year, month and city
+     * bucket. Number of city buckets, archive location and prefix of the file names should be interpolated into
+     * the query below, the time should be bound as parameter.
+     */
+    public static final String ARCHIVE_MEASUREMENTS_BEFORE_SQL = """
+            COPY (
+                SELECT
+                    id,
+                    sensor_id,
+                    city_id,
+                    pm10,
+                    co,
+                    no2,
+                    timestamp,
+                    year(timestamp) AS year,
+                    month(timestamp) AS month,
+                    hash(city_id) %% %d AS city_bucket
+                FROM measurements
+                WHERE timestamp < ?
+            ) TO '%s' (FORMAT PARQUET, PARTITION_BY (year, month, city_bucket), FILENAME_PATTERN '%s{uuid}', APPEND);
+            """;
+
+    public static final String DELETE_MEASUREMENTS_BEFORE_SQL = """
+            DELETE FROM measurements WHERE timestamp < ?
+            """;
+
+    /**
+     * List all cities.
+     */
+    public static final String ALL_CITIES_SQL = """
+            SELECT id, name, country, region, region_id FROM cities;
+            """;
+
+    /**
+     * Add the statistics of newly saved measurements to the monthly statistics of cities. Rows of values, one for each
+     * city and month, should be interpolated into the query below (see {@link #CITY_MONTHLY_STATS_VALUES_ROW}).
+     * A single statement is used, since every statement in a batch of upserts is executed separately.
+     */
+    public static final String UPSERT_CITY_MONTHLY_STATS_SQL = """
+            INSERT INTO city_monthly_stats (city_id, month, count, min_pm10, max_pm10, sum_pm10, min_co, max_co, sum_co,
+                                            min_no2, max_no2, sum_no2, days_mask)
+            VALUES %s
+            ON CONFLICT (city_id, month) DO
+            UPDATE SET
+                count = city_monthly_stats.count + EXCLUDED.count,
+                min_pm10 = LEAST(city_monthly_stats.min_pm10, EXCLUDED.min_pm10),
+                max_pm10 = GREATEST(city_monthly_stats.max_pm10, EXCLUDED.max_pm10),
+                sum_pm10 = city_monthly_stats.sum_pm10 + EXCLUDED.sum_pm10,
+                min_co = LEAST(city_monthly_stats.min_co, EXCLUDED.min_co),
+                max_co = GREATEST(city_monthly_stats.max_co, EXCLUDED.max_co),
+                sum_co = city_monthly_stats.sum_co + EXCLUDED.sum_co,
+                min_no2 = LEAST(city_monthly_stats.min_no2, EXCLUDED.min_no2),
+                max_no2 = GREATEST(city_monthly_stats.max_no2, EXCLUDED.max_no2),
+                sum_no2 = city_monthly_stats.sum_no2 + EXCLUDED.sum_no2,
+                days_mask = city_monthly_stats.days_mask | EXCLUDED.days_mask
+            """;
+
+    public static final String CITY_MONTHLY_STATS_VALUES_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /*
+     * Averages are calculated from the monthly sums in the same way AVG does it for a DECIMAL(10, 2) column: the unscaled
+     * sum is divided by count * 100 as a double. Dividing the DECIMAL sum directly gives slightly different results.
+     */
+
+    /**
+     * List all cities from the last 5 months when there was a constant upward trend for any of the chosen air quality
+     * values, meaning for 5 consecutive months the value of that column was rising for that specific city. All the values
+     * are checked in a single pass, the query returns one 'rising_<column>' flag per value for each city.
+     * Columns for each of the values should be interpolated into the query below, see {@link #RISING_AVG_COLUMN},
+     * {@link #RISING_TREND_COLUMN} and {@link #RISING_FLAG_COLUMN}.
      */
     public static final String RISING_REGION_AVG_5MONTH_SQL = """
             WITH monthly_avg AS (
                 SELECT
                     c.name,
-                    m.city_id,
-                    time_bucket(INTERVAL '1 month', m.timestamp) AS month,
-                    AVG(m.%s) AS avg_val
-                FROM measurements m
-                JOIN cities c ON c.id = m.city_id
+                    s.city_id,
+                    s.month,
+                    %s
+                FROM city_monthly_stats s
+                JOIN cities c ON c.id = s.city_id
                 WHERE c.region_id = ?
-                  AND m.timestamp < DATE_TRUNC('month', CURRENT_DATE)
-                  AND m.timestamp >= DATE_TRUNC('month', CURRENT_DATE) - INTERVAL '5 months'
-                GROUP BY c.name, m.city_id, time_bucket(INTERVAL '1 month', m.timestamp)
+                  AND s.month < DATE_TRUNC('month', CURRENT_DATE)
+                  AND s.month >= DATE_TRUNC('month', CURRENT_DATE) - INTERVAL '5 months'
             ),
             with_trend AS (
                 SELECT
                     name,
                     city_id,
-                    avg_val > LAG(avg_val) OVER (PARTITION BY city_id ORDER BY month) AS is_rising
+                    %s
                 FROM monthly_avg
+                WINDOW city_months AS (PARTITION BY city_id ORDER BY month)
             )
-            SELECT name
+            SELECT
+                name,
+                %s
             FROM with_trend
             GROUP BY name
-            HAVING COUNT(*) = 5 AND COUNT(*) FILTER (WHERE is_rising) = 4;
+            HAVING COUNT(*) = 5;
             """;
 
+    public static final String RISING_AVG_COLUMN = "(s.sum_%1$s * 100)::DOUBLE / (s.count * 100) AS avg_%1$s";
+
+    public static final String RISING_TREND_COLUMN = "avg_%1$s > LAG(avg_%1$s) OVER city_months AS is_rising_%1$s";
+
+    public static final String RISING_FLAG_COLUMN = "COUNT(*) FILTER (WHERE is_rising_%1$s) = 4 AS rising_%1$s";
+
+    /*
+     * Queries of all_measurements compare the 'year' and 'month' columns with parameters, bound with the year, year and
+     * month of the earliest measurement time. Conditions on expressions of these columns don't skip archive files.
+     */
+
     /**
-     * List air quality statistics from the last hour for the chosen city.
+     * List air quality statistics from the last hour for the chosen city. The start and the end of the window, see
+     * {@link com.interview.monitor.domain.model.LastHourWindow}, should be bound before the month of its start.
      */
     public static final String CITY_STATS_LAST_HOUR_SQL = """
             SELECT
@@ -62,13 +229,135 @@ public final class SqlQueries {
                 MIN(pm10) as min_pm10,
                 AVG(pm10) as avg_pm10,
                 MAX(pm10) as max_pm10,
-            FROM measurements m
+            FROM all_measurements m
             WHERE m.city_id = ?
-              AND m.timestamp >= NOW() - INTERVAL '1 hour';
+              AND m.timestamp >= ?
+              AND m.timestamp < ?
+              AND (m.year > ? OR (m.year = ? AND m.month >= ?));
+            """;
+
+    /**
+     * Per-minute air quality statistics of each city, for all the measurements taken since the given time.
+     */
+    public static final String CITY_MINUTE_STATS_SINCE_SQL = """
+            SELECT
+                city_id,
+                time_bucket(INTERVAL '1 minute', timestamp) AS minute,
+                COUNT(*) AS count,
+                MIN(no2) AS min_no2,
+                SUM(no2) AS sum_no2,
+                MAX(no2) AS max_no2,
+                MIN(co) AS min_co,
+                SUM(co) AS sum_co,
+                MAX(co) AS max_co,
+                MIN(pm10) AS min_pm10,
+                SUM(pm10) AS sum_pm10,
+                MAX(pm10) AS max_pm10
+            FROM all_measurements
+            WHERE timestamp >= ?
+              AND (year > ? OR (year = ? AND month >= ?))
+            GROUP BY ALL;
+            """;
+
+    /**
+     * Add the statistics of the staged measurements to one of the downsampled series. The series table and the width of
+     * its buckets should be interpolated into the query below.
+     */
+    public static final String MERGE_SERIES_STAGING_SQL = """
+            INSERT INTO %1$s (city_id, sensor_id, bucket, count, min_pm10, max_pm10, sum_pm10, min_co, max_co, sum_co,
+                              min_no2, max_no2, sum_no2)
+            SELECT
+                city_id,
+                sensor_id,
+                time_bucket(INTERVAL '%2$s', timestamp) AS bucket,
+                COUNT(*),
+                MIN(pm10),
+                MAX(pm10),
+                SUM(pm10),
+                MIN(co),
+                MAX(co),
+                SUM(co),
+                MIN(no2),
+                MAX(no2),
+                SUM(no2)
+            FROM measurements_staging
+            GROUP BY ALL
+            ON CONFLICT (city_id, bucket, sensor_id) DO
+            UPDATE SET
+                count = %1$s.count + EXCLUDED.count,
+                min_pm10 = LEAST(%1$s.min_pm10, EXCLUDED.min_pm10),
+                max_pm10 = GREATEST(%1$s.max_pm10, EXCLUDED.max_pm10),
+                sum_pm10 = %1$s.sum_pm10 + EXCLUDED.sum_pm10,
+                min_co = LEAST(%1$s.min_co, EXCLUDED.min_co),
+                max_co = GREATEST(%1$s.max_co, EXCLUDED.max_co),
+                sum_co = %1$s.sum_co + EXCLUDED.sum_co,
+                min_no2 = LEAST(%1$s.min_no2, EXCLUDED.min_no2),
+                max_no2 = GREATEST(%1$s.max_no2, EXCLUDED.max_no2),
+                sum_no2 = %1$s.sum_no2 + EXCLUDED.sum_no2
+            """;
+
+    /**
+     * Air quality statistics of the city in each bucket of one of the downsampled series, from the bucket the beginning
+     * of the time range falls into up to the end of the range. Sensors of the city are merged. The series table and
+     * the width of its buckets should be interpolated into the query below.
+     */
+    public static final String CITY_SERIES_SQL = """
+            SELECT
+                bucket,
+                SUM(count)::BIGINT AS count,
+                MIN(min_no2) AS min_no2,
+                (SUM(sum_no2) * 100)::DOUBLE / (SUM(count) * 100) AS avg_no2,
+                MAX(max_no2) AS max_no2,
+                MIN(min_co) AS min_co,
+                (SUM(sum_co) * 100)::DOUBLE / (SUM(count) * 100) AS avg_co,
+                MAX(max_co) AS max_co,
+                MIN(min_pm10) AS min_pm10,
+                (SUM(sum_pm10) * 100)::DOUBLE / (SUM(count) * 100) AS avg_pm10,
+                MAX(max_pm10) AS max_pm10
+            FROM %1$s
+            WHERE city_id = ?
+              AND bucket >= time_bucket(INTERVAL '%2$s', ?::TIMESTAMP)
+              AND bucket < ?
+            GROUP BY bucket
+            ORDER BY bucket;
+            """;
+
+    /**
+     * List all measurements taken in the given time range. Condition on the city, or nothing for all the cities, should
+     * be interpolated into the query below (see {@link #EXPORT_CITY_CONDITION}). Bounds of the time range should be bound
+     * as parameters, followed by the year, year and month of both of them.
+     */
+    public static final String EXPORT_MEASUREMENTS_SQL = """
+            SELECT id, sensor_id, city_id, pm10, co, no2, timestamp
+            FROM all_measurements
+            WHERE timestamp >= ?
+              AND timestamp < ?
+              AND (year > ? OR (year = ? AND month >= ?))
+              AND (year < ? OR (year = ? AND month <= ?))
+              %s
+            """;
+
+    public static final String EXPORT_CITY_CONDITION = "AND city_id = ?";
+
+    /**
+     * Write the result of the query to a Parquet file, the query and the file name should be interpolated into the query
+     * below.
+     */
+    public static final String EXPORT_TO_PARQUET_SQL = """
+            COPY (%s) TO '%s' (FORMAT PARQUET);
+            """;
+
+    /**
+     * Results of the connection's queries are fetched as they are read instead of being computed as a whole up front.
+     * Applies to the current connection only, should be set back to false before the connection is released.
+     */
+    public static final String SET_STREAM_RESULTS_SQL = """
+            SET SESSION jdbc_stream_results = %b;
             """;
 
     /**
      * Generate CSV report with 10 cities with the highest average monthly PM10 stats for the previous month.
+     * Only cities with measurements from each day of that month are taken into account.
      * Specific file name and location of the report should be interpolated into the query below.
      */
     public static final String GENERATE_MONTHLY_HIGHEST_PM10_REPORT_SQL = """
@@ -76,13 +365,11 @@ public final class SqlQueries {
                 SELECT
                     c.name AS CITY,
                     c.region AS REGION,
-                    ROUND(AVG(m.pm10), 2) AS PM10
-                FROM measurements m
-                JOIN cities c ON m.city_id = c.id
-                WHERE m.timestamp >= DATE_TRUNC('month', CURRENT_DATE) - INTERVAL '1 month'
-                  AND m.timestamp < DATE_TRUNC('month', CURRENT_DATE)
-                GROUP BY ALL
-                HAVING COUNT(DISTINCT m.timestamp::DATE) = day(last_day(CURRENT_DATE - INTERVAL '1 month'))
+                    ROUND((s.sum_pm10 * 100)::DOUBLE / (s.count * 100), 2) AS PM10
+                FROM city_monthly_stats s
+                JOIN cities c ON s.city_id = c.id
+                WHERE s.month = DATE_TRUNC('month', CURRENT_DATE) - INTERVAL '1 month'
+                  AND bit_count(s.days_mask) = day(last_day(CURRENT_DATE - INTERVAL '1 month'))
                 ORDER BY PM10 DESC
                 LIMIT 10
             ) TO '%s' (HEADER);
@@ -91,37 +378,23 @@ public final class SqlQueries {
     /**
      * Return list of all cities for which the average value of NO2 measurements for the previous month is higher than
      * the same average a year before the previous month (so for instance if query is called in February 2026 we want to
-     * compare NO2 ratings for all cities between January 2025 and January 2026).
+     * compare NO2 ratings for all cities between January 2025 and January 2026). Columns are named after the fields of
+     * the response, as they are exported as they are to Arrow.
      */
     public static final String HIGHER_NO2_CITIES_PREVIOUS_MONTH_YEAR_TO_YEAR_SQL = """
-            WITH previous_month AS (
-                SELECT
-                    city_id,
-                    AVG(no2) AS avg_no2
-                FROM measurements
-                WHERE timestamp >= DATE_TRUNC('month', current_date) - INTERVAL '1 month'
-                  AND timestamp < DATE_TRUNC('month', current_date)
-                GROUP BY city_id
-            ),
-            year_ago_month AS (
-                SELECT
-                    city_id,
-                    AVG(no2) AS avg_no2
-                FROM measurements
-                WHERE timestamp >= DATE_TRUNC('month', current_date) - INTERVAL '13 months'
-                  AND timestamp < DATE_TRUNC('month', current_date) - INTERVAL '12 months'
-                GROUP BY city_id
-            )
             SELECT
-                c.name,
-                c.id,
+                c.name AS city,
+                c.id AS cityId,
                 c.country,
-                pm.avg_no2 AS avgNo2Current,
-                yam.avg_no2 AS avgNo2YearBefore
+                (pm.sum_no2 * 100)::DOUBLE / (pm.count * 100) AS avgNo2Current,
+                (yam.sum_no2 * 100)::DOUBLE / (yam.count * 100) AS avgNo2YearBefore
             FROM cities c
-            JOIN previous_month pm ON c.id = pm.city_id
-            JOIN year_ago_month yam ON c.id = yam.city_id
-            WHERE pm.avg_no2 > yam.avg_no2;
+            JOIN city_monthly_stats pm ON c.id = pm.city_id
+                AND pm.month = DATE_TRUNC('month', current_date) - INTERVAL '1 month'
+            JOIN city_monthly_stats yam ON c.id = yam.city_id
+                AND yam.month = DATE_TRUNC('month', current_date) - INTERVAL '13 months'
+            WHERE avgNo2Current > avgNo2YearBefore;
             """;
+
     private SqlQueries() {}
 }
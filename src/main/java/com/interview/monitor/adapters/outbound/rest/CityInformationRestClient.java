@@ -1,47 +1,136 @@
 package com.interview.monitor.adapters.outbound.rest;
 
 import com.interview.monitor.adapters.outbound.rest.dto.CityInfoDTO;
-import com.interview.monitor.adapters.outbound.rest.dto.CityInfoListDTO;
 import com.interview.monitor.domain.exception.IntegrationException;
 import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.CityDirectoryVersion;
 import com.interview.monitor.domain.ports.outbound.CityInformationClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
+/**
+ * Reads the list of cities as it's downloaded, one city at a time, so only a single chunk of cities is kept in memory,
+ * no matter how big the list is.
+ */
 @Slf4j
 @Component
 public class CityInformationRestClient implements CityInformationClient {
+    private static final String CITIES_FIELD = "cities";
+
     private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader cityReader;
+    private final int chunkSize;
     private final RestClient restClient = RestClient.create();
 
-    public CityInformationRestClient(@Value("${integrations.city-information.base-url}") String baseUrl) {
+    public CityInformationRestClient(@Value("${integrations.city-information.base-url}") String baseUrl,
+                                     @Value("${integrations.city-information.chunk-size}") int chunkSize,
+                                     ObjectMapper objectMapper) {
         this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        // Array elements are read one by one, the rest of the array always follows the element
+        this.cityReader = objectMapper.readerFor(CityInfoDTO.class).without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.chunkSize = chunkSize;
     }
 
+    /**
+     * Makes a conditional request with the entity tag and the last modification time of the known version, the service
+     * responds with 304 Not Modified and no body when the directory is still the same.
+     * <p>
+     * Chunks read before the response turns out to be broken have already been consumed by then, consuming them again
+     * on a retry is expected to be harmless.
+     */
     @Override
     @Retryable(value = RestClientException.class, maxAttempts = 5, backoff = @Backoff(delay = 1000))
-    public List<City> fetchFullCityInformation() {
-        log.info("Fetching full list of cities");
+    public Optional<CityDirectoryVersion> fetchFullCityInformation(CityDirectoryVersion knownVersion,
+                                                                   Consumer<List<City>> chunkConsumer) {
+        log.info("Fetching full list of cities [knownVersion=%s]".formatted(knownVersion));
         String uri = baseUrl + "/cities";
 
-        CityInfoListDTO response = restClient.get().uri(uri).retrieve().body(CityInfoListDTO.class);
-        if (response == null || CollectionUtils.isEmpty(response.cities())) {
-            throw new IntegrationException("Problems occurred when fetching city information!");
-        }
+        return restClient.get().uri(uri)
+                .headers(headers -> {
+                    if (knownVersion.etag() != null) {
+                        headers.setIfNoneMatch(knownVersion.etag());
+                    }
+                    if (knownVersion.lastModified() != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, knownVersion.lastModified());
+                    }
+                })
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        log.info("List of cities not modified since the known version");
+                        return Optional.empty();
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new RestClientResponseException("Fetching list of cities failed", response.getStatusCode(),
+                                response.getStatusText(), response.getHeaders(), null, null);
+                    }
+
+                    long cities = readCities(response.getBody(), chunkConsumer);
+                    if (cities == 0) {
+                        throw new IntegrationException("Problems occurred when fetching city information!");
+                    }
+                    HttpHeaders headers = response.getHeaders();
+                    return Optional.of(new CityDirectoryVersion(headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED)));
+                });
+    }
 
-        return response.cities().stream()
-                .map(CityInformationRestClient::toDomain)
-                .collect(Collectors.toList());
+    /**
+     * @return number of the cities passed to the consumer
+     */
+    private long readCities(InputStream body, Consumer<List<City>> chunkConsumer) {
+        long cities = 0;
+        List<City> chunk = new ArrayList<>(chunkSize);
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY || !CITIES_FIELD.equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                        throw new IntegrationException("Null city information after %d cities".formatted(cities));
+                    }
+                    chunk.add(toDomain(cityReader.readValue(parser)));
+                    cities++;
+                    if (chunk.size() >= chunkSize) {
+                        chunkConsumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+            }
+        } catch (JacksonException ex) {
+            throw new IntegrationException("Malformed city information after %d cities".formatted(cities), ex);
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+        return cities;
     }
 
     private static City toDomain(CityInfoDTO cityInfo) {
@@ -0,0 +1,48 @@
+package com.interview.monitor.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.RISING_CITY_STATS_CACHE;
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.WORST_NO2_CITIES_CACHE;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Caches of the month based analytical queries. Entries expire when the next month starts, hit and miss counts
+     * are published by actuator as 'cache.gets'. A result computed while its cache was cleared isn't kept, see
+     * {@link ClearAwareCaffeineCache}.
+     */
+    @Bean
+    CacheManager cacheManager(@Value("${analytics.cache.maximum-regions}") long maximumRegions, Clock clock) {
+        var expiry = new UntilNextMonthExpiry(clock);
+        var cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                                               com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new ClearAwareCaffeineCache(name, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.registerCustomCache(RISING_CITY_STATS_CACHE, Caffeine.newBuilder()
+                .maximumSize(maximumRegions)
+                .expireAfter(expiry)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(WORST_NO2_CITIES_CACHE, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfter(expiry)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
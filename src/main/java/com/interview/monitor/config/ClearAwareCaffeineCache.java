@@ -0,0 +1,60 @@
+package com.interview.monitor.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caffeine cache which doesn't keep a value computed across a clear. A {@code @Cacheable} method looks its key up
+ * before it's called and puts the result after, a result computed while the cache was cleared may be calculated from
+ * the data the clear was meant to drop, so it isn't put. Every clear starts a new generation and a put is skipped when
+ * the generation changed since the lookup made on the same thread.
+ */
+class ClearAwareCaffeineCache extends CaffeineCache {
+    private final AtomicLong generation = new AtomicLong();
+    private final ThreadLocal<Long> lookupGeneration = new ThreadLocal<>();
+
+    ClearAwareCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        lookupGeneration.set(generation.get());
+        return super.lookup(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (isCurrentGeneration()) {
+            super.put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (isCurrentGeneration()) {
+            return super.putIfAbsent(key, value);
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        generation.incrementAndGet();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        generation.incrementAndGet();
+        return super.invalidate();
+    }
+
+    private boolean isCurrentGeneration() {
+        Long lookedUp = lookupGeneration.get();
+        lookupGeneration.remove();
+        return lookedUp == null || lookedUp == generation.get();
+    }
+}
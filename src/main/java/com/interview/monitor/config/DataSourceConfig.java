@@ -0,0 +1,108 @@
+package com.interview.monitor.config;
+
+import com.interview.monitor.adapters.outbound.db.DuckDbConnectionManager;
+import com.interview.monitor.adapters.outbound.db.DuckDbDataSource;
+import com.interview.monitor.adapters.outbound.db.DuckDbTransactionManager;
+import com.interview.monitor.adapters.outbound.db.ReadOnlyTransactionDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.transaction.autoconfigure.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    DuckDbDataSource duckDbDataSource(@Value("${spring.datasource.url}") String datasourceUrl) throws SQLException {
+        return new DuckDbDataSource(datasourceUrl);
+    }
+
+    /**
+     * Bounded pool of connections duplicated from the shared DuckDB instance. Pool size, idle eviction and
+     * the rest of the pool settings are configured through the standard 'spring.datasource.hikari.*' properties.
+     * Pool metrics (including connection acquisition time) are published by actuator.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource readWriteDataSource(DuckDbDataSource duckDbDataSource) {
+        var dataSource = new HikariDataSource();
+        dataSource.setDataSource(duckDbDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Separate pool for read-only transactions, configured through 'spring.datasource.read-only.hikari.*'. Its
+     * connections are duplicated from the same DuckDB instance, which can't open its own file a second time in
+     * read-only mode, so they see every committed write right away. Long analytical scans then only wait for each
+     * other and never hold the connection the ingestion flusher needs. Writes made in its transactions fail, see
+     * {@link ReadOnlyTransactionDataSource}.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.read-only.hikari")
+    HikariDataSource readOnlyDataSource(DuckDbDataSource duckDbDataSource) {
+        var dataSource = new HikariDataSource();
+        dataSource.setDataSource(new ReadOnlyTransactionDataSource(duckDbDataSource));
+        return dataSource;
+    }
+
+    /**
+     * Picks the pool when a connection is first used, so the transactions marked with
+     * {@code @Transactional(readOnly = true)} get a connection of the read-only pool and everything else
+     * a connection of the read-write one.
+     */
+    @Bean
+    @Primary
+    LazyConnectionDataSourceProxy dataSource(@Qualifier("readWriteDataSource") DataSource readWriteDataSource,
+                                             @Qualifier("readOnlyDataSource") DataSource readOnlyDataSource) {
+        var dataSource = new LazyConnectionDataSourceProxy(readWriteDataSource);
+        dataSource.setReadOnlyDataSource(readOnlyDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Replaces the transaction manager Spring Boot would configure with one which also ends transactions on platform
+     * threads, see {@link DuckDbTransactionManager}. Boot's 'spring.transaction.*' settings are applied to it still.
+     */
+    @Bean
+    DuckDbTransactionManager transactionManager(DataSource dataSource,
+                                                DuckDbConnectionManager connectionManager,
+                                                ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        var transactionManager = new DuckDbTransactionManager(dataSource, connectionManager);
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * Platform threads running DuckDB calls made from virtual threads, see {@link DuckDbConnectionManager}.
+     * Every call holds a pooled connection, so there is no use in more threads than connections of both pools.
+     */
+    @Bean(name = DuckDbConnectionManager.DUCKDB_CALL_EXECUTOR, destroyMethod = "shutdown")
+    ExecutorService duckDbCallExecutor(
+            @Value("${spring.datasource.hikari.maximum-pool-size}") int maximumPoolSize,
+            @Value("${spring.datasource.read-only.hikari.maximum-pool-size}") int maximumReadOnlyPoolSize) {
+        return Executors.newFixedThreadPool(maximumPoolSize + maximumReadOnlyPoolSize,
+                Thread.ofPlatform().name("duckdb-call-", 0).daemon().factory());
+    }
+
+    /**
+     * Off-heap memory of Arrow record batches exported from DuckDB. Every export takes a child allocator of its own,
+     * so closing the root on shutdown reports batches which were never released.
+     */
+    @Bean(destroyMethod = "close")
+    BufferAllocator arrowAllocator() {
+        return new RootAllocator();
+    }
+}
@@ -2,6 +2,7 @@ package com.interview.monitor.config;
 
 import com.interview.monitor.adapters.inbound.rest.dto.ResponseDTO;
 import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.IngestionOverloadedException;
 import com.interview.monitor.domain.exception.IntegrationException;
 import com.interview.monitor.domain.exception.ValidationException;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +40,15 @@ public class GlobalExceptionHandler {
                 .body(responseBody(BAD_REQUEST, ex.getMessage()));
     }
 
+    @ExceptionHandler(IngestionOverloadedException.class)
+    public ResponseEntity<ResponseDTO> handleIngestionOverloadedException(IngestionOverloadedException ex) {
+        log.warn("IngestionOverloadedException thrown: {}", ex.getMessage());
+        return ResponseEntity
+                .status(TOO_MANY_REQUESTS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(responseBody(TOO_MANY_REQUESTS, ex.getMessage()));
+    }
+
     // Standard 4xx Exceptions
     @ExceptionHandler(MissingServletRequestPartException.class)
     public ResponseEntity<ResponseDTO> handleMissingServletRequestPartException(MissingServletRequestParameterException ex) {
@@ -15,6 +15,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 public class SchedulerConfig {
     private static final String ONCE_A_DAY_AT_MIDNIGHT = "0 0 * * * *";
     private static final String ONCE_A_MONTH_AT_MIDNIGHT_OF_THE_FIRST_DAY_OF_THE_MONTH = "0 0 1 * * *";
+    private static final String DAILY_AT_1AM = "0 0 1 * * *";
 
     private final CityService cityService;
     private final MeasurementService measurementService;
@@ -38,4 +39,14 @@ public class SchedulerConfig {
             log.error("Problems occurred when generate monthly PM10 report", ex);
         }
     }
+
+    @Scheduled(cron = DAILY_AT_1AM)
+    void archiveCompletedMonths() {
+        try {
+            log.info("Attempting to archive measurements of completed months");
+            measurementService.archiveCompletedMonths();
+        } catch (Exception ex) {
+            log.error("Problems occurred when archiving measurements of completed months", ex);
+        }
+    }
 }
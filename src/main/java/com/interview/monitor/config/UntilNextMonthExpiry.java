@@ -0,0 +1,38 @@
+package com.interview.monitor.config;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Expires cache entries at the start of the next month, in the zone of the given clock. Reading an entry doesn't
+ * extend its lifetime.
+ */
+class UntilNextMonthExpiry implements Expiry<Object, Object> {
+    private final Clock clock;
+
+    UntilNextMonthExpiry(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime nextMonthStart = now.with(TemporalAdjusters.firstDayOfNextMonth()).truncatedTo(ChronoUnit.DAYS);
+        return Duration.between(now, nextMonthStart).toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
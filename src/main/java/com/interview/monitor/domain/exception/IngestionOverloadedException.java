@@ -0,0 +1,16 @@
+package com.interview.monitor.domain.exception;
+
+
+public class IngestionOverloadedException extends RuntimeException {
+    public IngestionOverloadedException(Exception ex) {
+        super(ex);
+    }
+
+    public IngestionOverloadedException(String msg) {
+        super(msg);
+    }
+
+    public IngestionOverloadedException(String msg, Exception ex) {
+        super(msg, ex);
+    }
+}
\ No newline at end of file
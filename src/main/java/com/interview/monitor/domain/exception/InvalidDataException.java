@@ -0,0 +1,12 @@
+package com.interview.monitor.domain.exception;
+
+
+/**
+ * The datastore rejected the written data itself, e.g. a violated constraint or a value out of range, as opposed to
+ * failing to write it at all. Writing the same data again fails the same way.
+ */
+public class InvalidDataException extends DatastoreException {
+    public InvalidDataException(String msg, Exception ex) {
+        super(msg, ex);
+    }
+}
@@ -0,0 +1,9 @@
+package com.interview.monitor.domain.model;
+
+/**
+ * Published once new or changed cities of a refresh of the city directory were written.
+ */
+public record CitiesUpdatedEvent(
+        long upserted
+) {
+}
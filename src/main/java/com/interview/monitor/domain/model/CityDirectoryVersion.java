@@ -0,0 +1,12 @@
+package com.interview.monitor.domain.model;
+
+/**
+ * Version of the city directory as told by the city information service, its entity tag and last modification time.
+ * Either of them may be null when the service doesn't send it.
+ */
+public record CityDirectoryVersion(
+        String etag,
+        String lastModified
+) {
+    public static final CityDirectoryVersion UNKNOWN = new CityDirectoryVersion(null, null);
+}
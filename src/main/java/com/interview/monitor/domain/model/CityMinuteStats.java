@@ -0,0 +1,16 @@
+package com.interview.monitor.domain.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Statistics of all the measurements taken in a city during a single minute.
+ */
+public record CityMinuteStats(
+        UUID cityId,
+        Instant minute,
+        ValueStats pm10,
+        ValueStats co,
+        ValueStats no2
+) {
+}
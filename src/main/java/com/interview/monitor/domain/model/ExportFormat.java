@@ -0,0 +1,7 @@
+package com.interview.monitor.domain.model;
+
+public enum ExportFormat {
+    CSV,
+    PARQUET,
+    ARROW
+}
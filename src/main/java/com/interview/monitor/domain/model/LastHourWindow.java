@@ -0,0 +1,19 @@
+package com.interview.monitor.domain.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Time range of the last hour statistics, cut at whole minutes: from the start of the minute an hour before the
+ * current one, up to the end of the minute {@link #FUTURE_MINUTES} after it, to tolerate sensor clock skew.
+ */
+public record LastHourWindow(Instant from, Instant until) {
+    public static final Duration LENGTH = Duration.ofHours(1);
+    public static final long FUTURE_MINUTES = 3;
+
+    public static LastHourWindow at(Instant now) {
+        Instant currentMinute = now.truncatedTo(ChronoUnit.MINUTES);
+        return new LastHourWindow(currentMinute.minus(LENGTH), currentMinute.plus(Duration.ofMinutes(FUTURE_MINUTES + 1)));
+    }
+}
@@ -2,23 +2,27 @@ package com.interview.monitor.domain.model;
 
 import com.interview.monitor.adapters.inbound.rest.dto.MeasurementRequestDTO;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * @param id   assigned when the measurement is saved, {@link #NO_ID} until then
+ * @param pm10 fixed-point value, see {@link MeasurementValue}, same for {@code co} and {@code no2}
+ */
 public record Measurement(
-        BigInteger id,
+        long id,
         UUID sensorId,
         UUID cityId,
-        BigDecimal pm10,
-        BigDecimal co,
-        BigDecimal no2,
+        long pm10,
+        long co,
+        long no2,
         Instant timestamp
 ) {
+    public static final long NO_ID = 0;
+
     public static Measurement fromRequest(MeasurementRequestDTO request) {
         return new Measurement(
-                null,
+                NO_ID,
                 UUID.fromString(request.sensorId()),
                 UUID.fromString(request.cityId()),
                 request.pm10(),
@@ -27,4 +31,4 @@ public record Measurement(
                 Instant.ofEpochSecond(request.timestamp())
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.interview.monitor.domain.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Measurements taken from {@code from} (inclusive) to {@code to} (exclusive), of a single city or, when
+ * {@code cityId} is null, of all of them.
+ */
+public record MeasurementExport(
+        Instant from,
+        Instant to,
+        UUID cityId,
+        ExportFormat format
+) {
+}
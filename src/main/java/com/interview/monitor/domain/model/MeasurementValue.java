@@ -0,0 +1,101 @@
+package com.interview.monitor.domain.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Measurement values are kept as fixed-point longs holding hundredths, the unscaled value of the DECIMAL(10, 2)
+ * columns they are stored in. They are converted from and to decimals only where they enter or leave the application.
+ */
+public final class MeasurementValue {
+    public static final int SCALE = 2;
+    public static final long MAX = 9_999_999_999L;
+
+    private static final int ONE = 100;
+
+    private MeasurementValue() {}
+
+    /**
+     * Parses a plain decimal number, like '23.1' or '-0.385', without allocating. Digits beyond the scale are rounded
+     * half up, as done by a cast to the column type.
+     *
+     * @throws NumberFormatException when the text isn't a plain decimal number, e.g. uses an exponent
+     * @throws ArithmeticException   when the value doesn't fit the column
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits < SCALE) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    if (unscaled > MAX * 10) {
+                        throw outOfRange(chars, offset, length);
+                    }
+                } else if (fractionDigits == SCALE) {
+                    roundUp = c >= '5';
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                throw new NumberFormatException("Not a plain decimal number: " + new String(chars, offset, length));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a plain decimal number: " + new String(chars, offset, length));
+        }
+
+        for (int scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+            unscaled *= 10;
+        }
+        if (roundUp) {
+            unscaled++;
+        }
+        if (unscaled > MAX) {
+            throw outOfRange(chars, offset, length);
+        }
+        return negative ? -unscaled : unscaled;
+    }
+
+    public static long parse(String value) {
+        return parse(value.toCharArray(), 0, value.length());
+    }
+
+    public static long valueOf(long integer) {
+        if (Math.abs(integer) > MAX / ONE) {
+            throw new ArithmeticException("Value %d is out of range".formatted(integer));
+        }
+        return integer * ONE;
+    }
+
+    public static long valueOf(BigDecimal value) {
+        long unscaled = value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        if (Math.abs(unscaled) > MAX) {
+            throw new ArithmeticException("Value %s is out of range".formatted(value.toPlainString()));
+        }
+        return unscaled;
+    }
+
+    public static BigDecimal toDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    private static ArithmeticException outOfRange(char[] chars, int offset, int length) {
+        return new ArithmeticException("Value %s is out of range".formatted(new String(chars, offset, length)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.interview.monitor.domain.model;
+
+import java.util.List;
+
+/**
+ * Published within the transaction which saved the measurements.
+ */
+public record MeasurementsSavedEvent(
+        List<Measurement> measurements
+) {
+}
@@ -0,0 +1,7 @@
+package com.interview.monitor.domain.model;
+
+public enum Pollutant {
+    PM10,
+    CO,
+    NO2
+}
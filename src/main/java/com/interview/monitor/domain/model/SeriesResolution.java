@@ -0,0 +1,38 @@
+package com.interview.monitor.domain.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Width of the buckets of a downsampled series of measurements.
+ */
+public enum SeriesResolution {
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1));
+
+    private final Duration step;
+
+    SeriesResolution(Duration step) {
+        this.step = step;
+    }
+
+    public Duration step() {
+        return step;
+    }
+
+    /**
+     * The coarsest resolution which still splits the time range into at least the given number of buckets, so the
+     * fewest rows are read for the requested detail. The finest one when none of them does.
+     */
+    public static SeriesResolution coarsestWithPoints(Instant from, Instant to, int points) {
+        Duration range = Duration.between(from, to);
+        SeriesResolution[] resolutions = values();
+        for (int i = resolutions.length - 1; i > 0; i--) {
+            if (range.dividedBy(resolutions[i].step) >= points) {
+                return resolutions[i];
+            }
+        }
+        return resolutions[0];
+    }
+}
@@ -0,0 +1,12 @@
+package com.interview.monitor.domain.model;
+
+/**
+ * @param min fixed-point value, see {@link MeasurementValue}, same for {@code max} and {@code sum}
+ */
+public record ValueStats(
+        long min,
+        long max,
+        long sum,
+        long count
+) {
+}
@@ -1,5 +1,9 @@
 package com.interview.monitor.domain.ports.inbound;
 
+import java.util.UUID;
+
 public interface CityService {
     void refreshCityInformation();
+
+    boolean isKnownCity(UUID cityId);
 }
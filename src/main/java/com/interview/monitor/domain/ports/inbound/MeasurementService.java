@@ -1,22 +1,46 @@
 package com.interview.monitor.domain.ports.inbound;
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.RisingCityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesResponseDTO;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.model.SeriesResolution;
 
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface MeasurementService {
     void save(Measurement measurement);
 
+    void saveAll(List<Measurement> measurements);
+
     RisingCityStatsResponseDTO calculateRisingCityStats(UUID regionId);
 
     Optional<CityStatsResponseDTO> calculateCityStatsLastHour(UUID cityId);
 
+    Stream<CityStatsLastHourResponseDTO> calculateRegionStatsLastHour(UUID regionId);
+
+    Stream<CityStatsLastHourResponseDTO> calculateCitiesStatsLastHour(List<UUID> cityIds);
+
+    /**
+     * @param resolution resolution of the series, or null for the coarsest one with at least the given number of points
+     */
+    SeriesResponseDTO getCitySeries(UUID cityId, Instant from, Instant to, SeriesResolution resolution, int points);
+
     void generateMonthlyHighestPM10Report();
 
+    void archiveCompletedMonths();
+
     List<CityNo2YearToYearResponseDTO> getWorstNo2CitiesYearToYear();
+
+    void exportWorstNo2CitiesYearToYear(OutputStream output);
+
+    void exportMeasurements(MeasurementExport export, OutputStream output);
 }
@@ -1,9 +1,17 @@
 package com.interview.monitor.domain.ports.outbound;
 
 import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.CityDirectoryVersion;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CityInformationClient {
-    List<City> fetchFullCityInformation();
+    /**
+     * Passes the full list of cities to the consumer in consecutive chunks, each one of at most the configured size.
+     *
+     * @return version of the passed list, or nothing when the directory hasn't changed since the given version of it
+     */
+    Optional<CityDirectoryVersion> fetchFullCityInformation(CityDirectoryVersion knownVersion, Consumer<List<City>> chunkConsumer);
 }
@@ -5,5 +5,12 @@ import com.interview.monitor.domain.model.City;
 import java.util.List;
 
 public interface CityRepository {
-    void upsertAll(List<City> cities);
+    /**
+     * Inserts the new cities and updates the changed ones.
+     *
+     * @return number of the inserted and updated cities
+     */
+    int upsertAll(List<City> cities);
+
+    List<City> findAll();
 }
@@ -0,0 +1,13 @@
+package com.interview.monitor.domain.ports.outbound;
+
+import java.time.YearMonth;
+
+public interface MeasurementArchive {
+    /**
+     * Moves the measurements taken before the given month out of the measurements table. Archived measurements are
+     * still read by the queries of {@link MeasurementRepository}.
+     *
+     * @return number of archived measurements
+     */
+    long archiveBefore(YearMonth month);
+}
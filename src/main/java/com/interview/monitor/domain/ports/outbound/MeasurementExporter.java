@@ -0,0 +1,19 @@
+package com.interview.monitor.domain.ports.outbound;
+
+import com.interview.monitor.domain.model.MeasurementExport;
+
+import java.io.OutputStream;
+
+public interface MeasurementExporter {
+    /**
+     * Writes the measurements to the output as they are read, the export is never held in memory as a whole.
+     * Stops reading as soon as the output can't be written to anymore.
+     */
+    void export(MeasurementExport export, OutputStream output);
+
+    /**
+     * Writes the cities with a higher NO2 average than a year before, see
+     * {@link MeasurementRepository#queryWorstNo2CitiesYearToYear()}, as an Arrow IPC stream.
+     */
+    void exportWorstNo2CitiesYearToYear(OutputStream output);
+}
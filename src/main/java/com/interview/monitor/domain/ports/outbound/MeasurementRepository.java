@@ -2,22 +2,48 @@ package com.interview.monitor.domain.ports.outbound;
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesPointResponseDTO;
+import com.interview.monitor.domain.model.CityMinuteStats;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.Pollutant;
+import com.interview.monitor.domain.model.SeriesResolution;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface MeasurementRepository {
-    void save(Measurement measurement);
+    /**
+     * @return false when a measurement of the same sensor and timestamp was already saved, and nothing was written
+     */
+    boolean save(Measurement measurement);
+
+    /**
+     * Measurements are identified by their sensor and timestamp. The ones already saved are skipped, so are all but
+     * the first one of those repeated within the list.
+     *
+     * @return the measurements which were written, in the order they were given
+     */
+    List<Measurement> saveAll(List<Measurement> measurements);
+
+    /**
+     * Names of the cities of the region with a constant upward trend of each of the chosen values over the last 5 months.
+     * All the values are checked in a single pass over the monthly statistics.
+     */
+    Map<Pollutant, List<String>> queryRising5MCities(UUID regionId, Set<Pollutant> pollutants);
 
-    void saveAll(List<Measurement> measurements);
-
-    List<String> queryRisingCO5MCities(UUID regionId);
+    Optional<CityStatsResponseDTO> queryCityStatsLastHour(UUID cityId);
 
-    List<String> queryRisingPM105MCities(UUID regionId);
+    List<CityMinuteStats> queryCityMinuteStatsSince(Instant since);
 
-    Optional<CityStatsResponseDTO> queryCityStatsLastHour(UUID cityId);
+    /**
+     * Statistics of the city in each bucket of the series of the given resolution, from the bucket the beginning
+     * of the time range falls into up to the end of the range (exclusive). Buckets without measurements are left out.
+     */
+    List<SeriesPointResponseDTO> queryCitySeries(UUID cityId, Instant from, Instant to, SeriesResolution resolution);
 
     void generateMonthlyHighestPM10Report(String filename);
 
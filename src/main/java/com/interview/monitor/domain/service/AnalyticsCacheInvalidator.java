@@ -0,0 +1,79 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.CitiesUpdatedEvent;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Results of the month based analytical queries depend only on completed months, so they are cached until the next
+ * month starts. A measurement arriving late for one of the months a cached result was calculated from evicts it,
+ * and so does a refresh of the city directory which changed any city, the results list cities by their names.
+ */
+@Slf4j
+@Component
+public class AnalyticsCacheInvalidator {
+    public static final String RISING_CITY_STATS_CACHE = "risingCityStats";
+    public static final String WORST_NO2_CITIES_CACHE = "worstNo2CitiesYearToYear";
+
+    private static final int RISING_CITY_STATS_MONTHS = 5;
+    private static final int YEAR_TO_YEAR_MONTHS = 13;
+
+    private final CacheManager cacheManager;
+    private final Clock clock;
+
+    public AnalyticsCacheInvalidator(CacheManager cacheManager, Clock clock) {
+        this.cacheManager = cacheManager;
+        this.clock = clock;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeasurementsSaved(MeasurementsSavedEvent event) {
+        YearMonth currentMonth = YearMonth.now(clock);
+        Instant currentMonthStart = currentMonth.atDay(1).atStartOfDay(clock.getZone()).toInstant();
+        Set<YearMonth> lateMonths = event.measurements().stream()
+                .map(Measurement::timestamp)
+                .filter(timestamp -> timestamp.isBefore(currentMonthStart))
+                .map(timestamp -> YearMonth.from(timestamp.atZone(clock.getZone())))
+                .collect(Collectors.toSet());
+        if (lateMonths.isEmpty()) {
+            return;
+        }
+
+        YearMonth oldestRisingMonth = currentMonth.minusMonths(RISING_CITY_STATS_MONTHS);
+        if (lateMonths.stream().anyMatch(month -> !month.isBefore(oldestRisingMonth))) {
+            clear(RISING_CITY_STATS_CACHE, lateMonths);
+        }
+        if (lateMonths.contains(currentMonth.minusMonths(1)) || lateMonths.contains(currentMonth.minusMonths(YEAR_TO_YEAR_MONTHS))) {
+            clear(WORST_NO2_CITIES_CACHE, lateMonths);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCitiesUpdated(CitiesUpdatedEvent event) {
+        clear(RISING_CITY_STATS_CACHE, "%d changed cities".formatted(event.upserted()));
+        clear(WORST_NO2_CITIES_CACHE, "%d changed cities".formatted(event.upserted()));
+    }
+
+    private void clear(String cacheName, Set<YearMonth> lateMonths) {
+        clear(cacheName, "late measurements from %s".formatted(lateMonths));
+    }
+
+    private void clear(String cacheName, String reason) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            log.debug("Clearing %s cache after %s".formatted(cacheName, reason));
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.ports.outbound.CityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the cities in memory, so ingest can tell unknown cities apart and region queries can list the cities of
+ * a region without reading the cities table. The index is never modified, a new one is built from the table and
+ * swapped in as a whole, so readers see either the old or the new cities and need no locking.
+ * <p>
+ * Loaded on startup and rebuilt after each refresh of the city information, cities written to the table
+ * in any other way are not seen until the next rebuild.
+ */
+@Slf4j
+@Component
+public class CityIndex implements SmartLifecycle {
+    private final CityRepository cityRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean running;
+
+    public CityIndex(CityRepository cityRepository) {
+        this.cityRepository = cityRepository;
+    }
+
+    public boolean contains(UUID cityId) {
+        return snapshot.cities().containsKey(cityId);
+    }
+
+    public List<UUID> cityIdsOfRegion(UUID regionId) {
+        return snapshot.cityIdsByRegion().getOrDefault(regionId, List.of());
+    }
+
+    public void rebuild() {
+        Snapshot rebuilt = Snapshot.of(cityRepository.findAll());
+        snapshot = rebuilt;
+        log.info("Rebuilt city index [cities=%d, regions=%d]"
+                .formatted(rebuilt.cities().size(), rebuilt.cityIdsByRegion().size()));
+    }
+
+    @Override
+    public void start() {
+        rebuild();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Load before the ingestion pipeline and the web server start, so no known city is rejected
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    private record Snapshot(Map<UUID, City> cities, Map<UUID, List<UUID>> cityIdsByRegion) {
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+
+        private static Snapshot of(List<City> cities) {
+            Map<UUID, List<UUID>> cityIdsByRegion = cities.stream()
+                    .filter(city -> city.regionId() != null)
+                    .collect(Collectors.groupingBy(City::regionId,
+                            Collectors.mapping(City::id, Collectors.toUnmodifiableList())));
+            return new Snapshot(
+                    cities.stream().collect(Collectors.toUnmodifiableMap(City::id, Function.identity())),
+                    Map.copyOf(cityIdsByRegion));
+        }
+    }
+}
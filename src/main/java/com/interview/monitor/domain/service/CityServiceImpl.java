@@ -1,25 +1,60 @@
 package com.interview.monitor.domain.service;
 
-import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.CitiesUpdatedEvent;
+import com.interview.monitor.domain.model.CityDirectoryVersion;
 import com.interview.monitor.domain.ports.inbound.CityService;
 import com.interview.monitor.domain.ports.outbound.CityInformationClient;
 import com.interview.monitor.domain.ports.outbound.CityRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CityServiceImpl implements CityService {
     private final CityInformationClient cityInformationClient;
     private final CityRepository cityRepository;
+    private final CityIndex cityIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
+    private volatile CityDirectoryVersion appliedVersion = CityDirectoryVersion.UNKNOWN;
+
+    /**
+     * Fetches the directory only when it changed since the last applied version and writes only the new and changed
+     * cities, a chunk at a time as the directory is read. Each chunk is upserted with a single statement, the version
+     * is remembered once all of them are committed, so a failed refresh is retried in full next time. After a restart
+     * the first refresh fetches the whole directory again. The city index is rebuilt after every applied version, and
+     * a {@link CitiesUpdatedEvent} is published when any city was written.
+     */
     @Override
-    @Transactional
     public void refreshCityInformation() {
-        List<City> cities = cityInformationClient.fetchFullCityInformation();
-        cityRepository.upsertAll(cities);
+        var cities = new AtomicLong();
+        var upserted = new AtomicLong();
+        Optional<CityDirectoryVersion> version = cityInformationClient.fetchFullCityInformation(appliedVersion, chunk -> {
+            upserted.addAndGet(cityRepository.upsertAll(chunk));
+            cities.addAndGet(chunk.size());
+        });
+        if (version.isEmpty()) {
+            return;
+        }
+
+        appliedVersion = version.get();
+        cityIndex.rebuild();
+        if (upserted.get() > 0) {
+            eventPublisher.publishEvent(new CitiesUpdatedEvent(upserted.get()));
+        }
+        log.info("Refreshed city information [cities=%d, upserted=%d, version=%s]"
+                .formatted(cities.get(), upserted.get(), appliedVersion));
+    }
+
+    @Override
+    public boolean isKnownCity(UUID cityId) {
+        return cityIndex.contains(cityId);
     }
 }
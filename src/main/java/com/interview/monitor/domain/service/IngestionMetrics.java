@@ -0,0 +1,27 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Counts the measurements once they are committed, whether they came one by one through the ingestion pipeline or
+ * in a batch request. The rate of ingested rows is derived from the counter by the monitoring system.
+ */
+@Component
+public class IngestionMetrics {
+    private final Counter savedMeasurements;
+
+    public IngestionMetrics(MeterRegistry meterRegistry) {
+        this.savedMeasurements = Counter.builder("ingestion.measurements.saved")
+                .description("Measurements committed to the database")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeasurementsSaved(MeasurementsSavedEvent event) {
+        savedMeasurements.increment(event.measurements().size());
+    }
+}
@@ -0,0 +1,264 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.domain.model.CityMinuteStats;
+import com.interview.monitor.domain.model.LastHourWindow;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import com.interview.monitor.domain.model.ValueStats;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the air quality statistics of the last hour in memory, so they can be served without scanning
+ * the measurements table. Each city has a ring of per-minute buckets holding min/max/sum/count of every value,
+ * updated once the measurements are committed and warmed from the database on startup.
+ * <p>
+ * The window is tracked with minute precision, as defined by {@link LastHourWindow}, the same window the database
+ * query of the last hour statistics uses. Measurements outside of it are not tracked.
+ */
+@Slf4j
+@Component
+public class LastHourCityStatsAggregator implements SmartLifecycle {
+    private static final long WINDOW_MINUTES = LastHourWindow.LENGTH.toMinutes();
+    private static final long FUTURE_MINUTES = LastHourWindow.FUTURE_MINUTES;
+    // Every minute of the window, the current one and a few ahead to tolerate sensor clock skew
+    private static final int BUCKETS = (int) (WINDOW_MINUTES + 1 + FUTURE_MINUTES);
+
+    private final MeasurementRepository measurementRepository;
+    private final Clock clock;
+    private final Map<UUID, CityWindow> windows = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    public LastHourCityStatsAggregator(MeasurementRepository measurementRepository, Clock clock) {
+        this.measurementRepository = measurementRepository;
+        this.clock = clock;
+    }
+
+    public Optional<CityStatsResponseDTO> statsLastHour(UUID cityId) {
+        CityWindow window = windows.get(cityId);
+        return window == null ? Optional.empty() : window.stats(currentMinute());
+    }
+
+    /**
+     * Statistics of each of the cities with any measurements in the last hour, cities without them are skipped.
+     * The statistics of a city are computed only once the stream gets to it, all of them for the same window.
+     */
+    public Stream<CityStatsLastHourResponseDTO> statsLastHour(Collection<UUID> cityIds) {
+        long currentMinute = currentMinute();
+        return cityIds.stream()
+                .distinct()
+                .flatMap(cityId -> {
+                    CityWindow window = windows.get(cityId);
+                    return window == null ? Stream.empty() : window.stats(currentMinute).stream()
+                            .map(stats -> new CityStatsLastHourResponseDTO(cityId, stats));
+                });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeasurementsSaved(MeasurementsSavedEvent event) {
+        long currentMinute = currentMinute();
+        for (Measurement measurement : event.measurements()) {
+            long minute = epochMinute(measurement.timestamp());
+            if (isTracked(minute, currentMinute)) {
+                windowOf(measurement.cityId()).add(minute, measurement.pm10(), measurement.co(), measurement.no2());
+            }
+        }
+    }
+
+    /**
+     * Replaces whatever is kept in memory with the measurements from the last hour stored in the database.
+     */
+    void warmUp() {
+        long currentMinute = currentMinute();
+        Instant since = Instant.ofEpochSecond((currentMinute - WINDOW_MINUTES) * 60);
+
+        windows.clear();
+        int buckets = 0;
+        for (CityMinuteStats stats : measurementRepository.queryCityMinuteStatsSince(since)) {
+            long minute = epochMinute(stats.minute());
+            if (isTracked(minute, currentMinute)) {
+                windowOf(stats.cityId()).merge(minute, stats);
+                buckets++;
+            }
+        }
+        log.info("Warmed up last hour statistics with %d buckets for %d cities".formatted(buckets, windows.size()));
+    }
+
+    @Override
+    public void start() {
+        warmUp();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Warm up before the ingestion pipeline starts, so no measurement is counted twice or missed
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    private CityWindow windowOf(UUID cityId) {
+        return windows.computeIfAbsent(cityId, id -> new CityWindow());
+    }
+
+    private long currentMinute() {
+        return epochMinute(clock.instant());
+    }
+
+    private static boolean isTracked(long minute, long currentMinute) {
+        return minute >= currentMinute - WINDOW_MINUTES && minute <= currentMinute + FUTURE_MINUTES;
+    }
+
+    private static long epochMinute(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    private static final class CityWindow {
+        private final Bucket[] buckets = new Bucket[BUCKETS];
+
+        private CityWindow() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        private synchronized void add(long minute, long pm10, long co, long no2) {
+            Bucket bucket = bucketFor(minute);
+            bucket.pm10.add(pm10);
+            bucket.co.add(co);
+            bucket.no2.add(no2);
+        }
+
+        private synchronized void merge(long minute, CityMinuteStats stats) {
+            Bucket bucket = bucketFor(minute);
+            bucket.pm10.merge(stats.pm10());
+            bucket.co.merge(stats.co());
+            bucket.no2.merge(stats.no2());
+        }
+
+        private synchronized Optional<CityStatsResponseDTO> stats(long currentMinute) {
+            var pm10 = new Accumulator();
+            var co = new Accumulator();
+            var no2 = new Accumulator();
+            for (Bucket bucket : buckets) {
+                if (isTracked(bucket.minute, currentMinute)) {
+                    pm10.merge(bucket.pm10);
+                    co.merge(bucket.co);
+                    no2.merge(bucket.no2);
+                }
+            }
+
+            if (no2.count == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new CityStatsResponseDTO(
+                    no2.avg(), no2.max(), no2.min(),
+                    co.avg(), co.max(), co.min(),
+                    pm10.avg(), pm10.max(), pm10.min()));
+        }
+
+        private Bucket bucketFor(long minute) {
+            Bucket bucket = buckets[(int) Math.floorMod(minute, BUCKETS)];
+            if (bucket.minute != minute) {
+                // The bucket still holds a minute which already left the window
+                bucket.reset(minute);
+            }
+            return bucket;
+        }
+    }
+
+    private static final class Bucket {
+        private long minute = Long.MIN_VALUE;
+        private final Accumulator pm10 = new Accumulator();
+        private final Accumulator co = new Accumulator();
+        private final Accumulator no2 = new Accumulator();
+
+        private void reset(long minute) {
+            this.minute = minute;
+            pm10.reset();
+            co.reset();
+            no2.reset();
+        }
+    }
+
+    /**
+     * Min, max and sum of fixed-point values, see {@link MeasurementValue}.
+     */
+    private static final class Accumulator {
+        private long min;
+        private long max;
+        private long sum;
+        private long count;
+
+        private Accumulator() {
+            reset();
+        }
+
+        private void add(long value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+
+        private void merge(Accumulator other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+        }
+
+        private void merge(ValueStats stats) {
+            min = Math.min(min, stats.min());
+            max = Math.max(max, stats.max());
+            sum += stats.sum();
+            count += stats.count();
+        }
+
+        private void reset() {
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            sum = 0;
+            count = 0;
+        }
+
+        private BigDecimal min() {
+            return MeasurementValue.toDecimal(min);
+        }
+
+        private BigDecimal max() {
+            return MeasurementValue.toDecimal(max);
+        }
+
+        private BigDecimal avg() {
+            // Same double division the database does when averaging a decimal column
+            return BigDecimal.valueOf(sum / (count * Math.pow(10, MeasurementValue.SCALE)));
+        }
+    }
+}
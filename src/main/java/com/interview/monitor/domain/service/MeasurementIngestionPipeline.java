@@ -0,0 +1,293 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.IngestionOverloadedException;
+import com.interview.monitor.domain.exception.InvalidDataException;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind stage in front of {@link MeasurementRepository}. Measurements are placed on a bounded queue and a single
+ * flusher thread drains them into {@link MeasurementRepository#saveAll(List)}, once the batch size is reached or
+ * the flush interval has passed, whichever comes first. Each batch is written in a single transaction.
+ * <p>
+ * Measurements of the same sensor and timestamp as a recently submitted one are dropped before they are queued,
+ * older duplicates are skipped by the repository.
+ */
+@Slf4j
+@Component
+public class MeasurementIngestionPipeline implements SmartLifecycle {
+    private static final String FLUSHER_THREAD_NAME = "measurement-flusher";
+    // Enough to isolate a few invalid measurements in a batch of thousands, without writing it again piece by piece
+    static final int MAX_RETRIED_FLUSHES = 32;
+
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final DurabilityMode durabilityMode;
+    private final Duration flushTimeout;
+    private final BlockingQueue<PendingMeasurement> queue;
+    private final RecentMeasurementKeys recentKeys;
+    private final MeasurementRepository measurementRepository;
+    private final TransactionOperations transactionOperations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter duplicatesCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MeasurementIngestionPipeline(@Value("${ingestion.queue-capacity}") int queueCapacity,
+                                        @Value("${ingestion.batch-size}") int batchSize,
+                                        @Value("${ingestion.flush-interval}") Duration flushInterval,
+                                        @Value("${ingestion.durability}") DurabilityMode durabilityMode,
+                                        @Value("${ingestion.flush-timeout}") Duration flushTimeout,
+                                        @Value("${ingestion.recent-keys}") int recentKeysCapacity,
+                                        MeasurementRepository measurementRepository,
+                                        TransactionOperations transactionOperations,
+                                        ApplicationEventPublisher eventPublisher,
+                                        MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.durabilityMode = durabilityMode;
+        this.flushTimeout = flushTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.recentKeys = new RecentMeasurementKeys(recentKeysCapacity);
+        this.measurementRepository = measurementRepository;
+        this.transactionOperations = transactionOperations;
+        this.eventPublisher = eventPublisher;
+
+        Gauge.builder("ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Measurements waiting to be flushed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ingestion.flush.latency")
+                .description("Time taken to write a single batch of measurements")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("ingestion.flush.batch.size")
+                .description("Number of measurements written in a single batch")
+                .register(meterRegistry);
+        this.duplicatesCounter = Counter.builder("ingestion.measurements.duplicates")
+                .description("Measurements dropped as already submitted or saved")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the measurement for writing. Depending on the configured {@link DurabilityMode} returns as soon as
+     * the measurement is queued, or only after the batch containing it was committed. A duplicate of a recently
+     * submitted measurement is not queued again, it is acknowledged along with the original.
+     *
+     * @throws IngestionOverloadedException when the queue is full
+     */
+    public void submit(Measurement measurement) {
+        CompletableFuture<Void> flushed = enqueue(measurement);
+        if (durabilityMode == DurabilityMode.ACK_ON_FLUSH) {
+            awaitFlush(flushed);
+        }
+    }
+
+    /**
+     * Queues the measurements for writing and returns only after all the batches containing them were committed,
+     * whatever the configured {@link DurabilityMode}. Measurements submitted concurrently by other callers are written
+     * in the same batches, so bursts of small calls end up in a few commits instead of one each. A batch rejected for
+     * its data is written again in halves, so a measurement which can't be saved only fails the callers which
+     * submitted it.
+     *
+     * @throws IngestionOverloadedException when the queue is full, the measurements queued before are still written
+     */
+    public void submitAll(List<Measurement> measurements) {
+        var flushed = new CompletableFuture<?>[measurements.size()];
+        for (int i = 0; i < flushed.length; i++) {
+            flushed[i] = enqueue(measurements.get(i));
+        }
+        awaitFlush(CompletableFuture.allOf(flushed));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name(FLUSHER_THREAD_NAME).start(this::flushContinuously);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            // The flusher drains whatever is left in the queue before exiting
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start before and stop after the web server, so no request is accepted when nothing is draining the queue
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void flushContinuously() {
+        var batch = new ArrayList<PendingMeasurement>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException ex) {
+                // Stop accepting new measurements, but still drain the ones which were already queued
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingMeasurement> batch) throws InterruptedException {
+        PendingMeasurement first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+
+            PendingMeasurement next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<PendingMeasurement> batch) {
+        flush(batch, MAX_RETRIED_FLUSHES);
+    }
+
+    /**
+     * Writes the batch in a single transaction. When the data of the batch is rejected, each half of the batch is
+     * written on its own until only the measurements which can't be saved are left, and only their futures are failed.
+     * Any other failure, or running out of retries, fails the whole batch, as writing its parts would fail the same.
+     *
+     * @return the number of retries left for the rest of the batch
+     */
+    private int flush(List<PendingMeasurement> batch, int retriesLeft) {
+        List<Measurement> measurements = batch.stream().map(PendingMeasurement::measurement).toList();
+        try {
+            List<Measurement> saved = flushTimer.record(() -> transactionOperations.execute(status -> {
+                List<Measurement> written = measurementRepository.saveAll(measurements);
+                if (!written.isEmpty()) {
+                    eventPublisher.publishEvent(new MeasurementsSavedEvent(written));
+                }
+                return written;
+            }));
+            batchSizeSummary.record(saved.size());
+            duplicatesCounter.increment(measurements.size() - saved.size());
+            batch.forEach(pending -> pending.flushed().complete(null));
+            return retriesLeft;
+        } catch (RuntimeException ex) {
+            if (ex instanceof InvalidDataException && batch.size() > 1 && retriesLeft >= 2) {
+                log.warn("Problems occurred when saving a batch of %d measurements, saving its halves separately"
+                        .formatted(batch.size()));
+                int half = batch.size() / 2;
+                int retriesLeftAfterFirstHalf = flush(batch.subList(0, half), retriesLeft - 2);
+                return flush(batch.subList(half, batch.size()), retriesLeftAfterFirstHalf);
+            }
+            log.error("Problems occurred when saving a batch of %d measurements".formatted(batch.size()), ex);
+            batch.forEach(pending -> pending.flushed().completeExceptionally(ex));
+            return retriesLeft;
+        }
+    }
+
+    /**
+     * @return completed once the batch containing the measurement is committed, for a duplicate once the batch
+     * containing the original is
+     */
+    private CompletableFuture<Void> enqueue(Measurement measurement) {
+        if (!running) {
+            throw new DatastoreException("Measurement ingestion is not running");
+        }
+
+        var pending = new PendingMeasurement(measurement, new CompletableFuture<>());
+        CompletableFuture<Void> original = recentKeys.addIfAbsent(measurement, pending.flushed());
+        if (original != null) {
+            duplicatesCounter.increment();
+            return original;
+        }
+
+        if (!queue.offer(pending)) {
+            var ex = new IngestionOverloadedException("Too many measurements waiting to be saved, try again later");
+            // Forgets the key and fails the duplicates submitted in the meantime
+            pending.flushed().completeExceptionally(ex);
+            throw ex;
+        }
+        // The flusher may have stopped after the check above and drained the queue for the last time, the measurement
+        // would then never be written. Whatever is still in the queue after that is taken back.
+        if (!running && queue.remove(pending)) {
+            var ex = new DatastoreException("Measurement ingestion is not running");
+            pending.flushed().completeExceptionally(ex);
+            throw ex;
+        }
+        return pending.flushed();
+    }
+
+    private void awaitFlush(CompletableFuture<Void> flushed) {
+        try {
+            // A copy, as the future of a measurement is shared with its duplicates, which wait on their own
+            flushed.copy().orTimeout(flushTimeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new DatastoreException("Measurements were not saved within %s".formatted(flushTimeout), ex);
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public enum DurabilityMode {
+        /**
+         * Acknowledge as soon as the measurement is queued. Queued measurements are lost if the batch fails.
+         */
+        ACK_ON_ENQUEUE,
+        /**
+         * Acknowledge only after the batch containing the measurement was committed.
+         */
+        ACK_ON_FLUSH
+    }
+
+    private record PendingMeasurement(Measurement measurement, CompletableFuture<Void> flushed) {
+    }
+}
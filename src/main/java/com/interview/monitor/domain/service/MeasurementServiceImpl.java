@@ -2,65 +2,187 @@ package com.interview.monitor.domain.service;
 
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.RisingCityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesResponseDTO;
+import com.interview.monitor.domain.exception.ValidationException;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.model.Pollutant;
+import com.interview.monitor.domain.model.SeriesResolution;
 import com.interview.monitor.domain.ports.inbound.MeasurementService;
+import com.interview.monitor.domain.ports.outbound.MeasurementArchive;
+import com.interview.monitor.domain.ports.outbound.MeasurementExporter;
 import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.RISING_CITY_STATS_CACHE;
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.WORST_NO2_CITIES_CACHE;
 
 @Service
 public class MeasurementServiceImpl implements MeasurementService {
     private static final String FILE_PREFIX = "WORST_CITIES_PM10_";
     private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Set<Pollutant> RISING_STATS_POLLUTANTS = EnumSet.of(Pollutant.CO, Pollutant.PM10);
 
     private final String reportLocation;
+    private final int hotMonths;
+    private final int maxSeriesPoints;
     private final MeasurementRepository measurementRepository;
+    private final CityIndex cityIndex;
+    private final MeasurementArchive measurementArchive;
+    private final MeasurementExporter measurementExporter;
+    private final MeasurementIngestionPipeline ingestionPipeline;
+    private final LastHourCityStatsAggregator lastHourCityStatsAggregator;
+    private final Clock clock;
 
     public MeasurementServiceImpl(@Value("${reports.monthly.highest-pm10.location}") String reportLocation,
-                                  MeasurementRepository measurementRepository) {
+                                  @Value("${archive.hot-months}") int hotMonths,
+                                  @Value("${series.max-points}") int maxSeriesPoints,
+                                  MeasurementRepository measurementRepository,
+                                  CityIndex cityIndex,
+                                  MeasurementArchive measurementArchive,
+                                  MeasurementExporter measurementExporter,
+                                  MeasurementIngestionPipeline ingestionPipeline,
+                                  LastHourCityStatsAggregator lastHourCityStatsAggregator,
+                                  Clock clock) {
+        // With no hot month the month still being written would be archived
+        Assert.isTrue(hotMonths >= 1, "archive.hot-months should be at least 1");
         this.reportLocation = reportLocation;
+        this.hotMonths = hotMonths;
+        this.maxSeriesPoints = maxSeriesPoints;
         this.measurementRepository = measurementRepository;
+        this.cityIndex = cityIndex;
+        this.measurementArchive = measurementArchive;
+        this.measurementExporter = measurementExporter;
+        this.ingestionPipeline = ingestionPipeline;
+        this.lastHourCityStatsAggregator = lastHourCityStatsAggregator;
+        this.clock = clock;
     }
 
+    /**
+     * Rejects measurements of unknown cities before they are queued, with no database access.
+     */
     @Override
-    @Transactional
     public void save(Measurement measurement) {
-        measurementRepository.save(measurement);
+        if (!cityIndex.contains(measurement.cityId())) {
+            throw new ValidationException("Unknown city: %s".formatted(measurement.cityId()));
+        }
+        ingestionPipeline.submit(measurement);
+    }
+
+    /**
+     * Hands the measurements over to the flusher of the ingestion pipeline instead of writing them in a transaction of
+     * its own, so concurrent batches don't contend for DuckDB. Returns once they are committed.
+     */
+    @Override
+    public void saveAll(List<Measurement> measurements) {
+        ingestionPipeline.submitAll(measurements);
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(RISING_CITY_STATS_CACHE)
     public RisingCityStatsResponseDTO calculateRisingCityStats(UUID regionId) {
-        List<String> risingCO5MCities = measurementRepository.queryRisingCO5MCities(regionId);
-        List<String> risingPM105MCities = measurementRepository.queryRisingPM105MCities(regionId);
-        return new RisingCityStatsResponseDTO(risingCO5MCities, risingPM105MCities);
+        Map<Pollutant, List<String>> risingCities = measurementRepository.queryRising5MCities(regionId, RISING_STATS_POLLUTANTS);
+        return new RisingCityStatsResponseDTO(risingCities.get(Pollutant.CO), risingCities.get(Pollutant.PM10));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public Optional<CityStatsResponseDTO> calculateCityStatsLastHour(UUID cityId) {
-        return measurementRepository.queryCityStatsLastHour(cityId);
+        return lastHourCityStatsAggregator.statsLastHour(cityId);
+    }
+
+    @Override
+    public Stream<CityStatsLastHourResponseDTO> calculateRegionStatsLastHour(UUID regionId) {
+        return lastHourCityStatsAggregator.statsLastHour(cityIndex.cityIdsOfRegion(regionId));
+    }
+
+    @Override
+    public Stream<CityStatsLastHourResponseDTO> calculateCitiesStatsLastHour(List<UUID> cityIds) {
+        return lastHourCityStatsAggregator.statsLastHour(cityIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SeriesResponseDTO getCitySeries(UUID cityId, Instant from, Instant to, SeriesResolution resolution, int points) {
+        if (points > maxSeriesPoints) {
+            throw new ValidationException("Incorrect request format: 'points' should be at most %d"
+                    .formatted(maxSeriesPoints));
+        }
+        SeriesResolution seriesResolution = resolution != null
+                ? resolution
+                : SeriesResolution.coarsestWithPoints(from, to, points);
+        // One more bucket than the range holds whole, as the first one starts before 'from'
+        long buckets = Duration.between(from, to).dividedBy(seriesResolution.step()) + 1;
+        if (buckets > maxSeriesPoints) {
+            throw new ValidationException("Incorrect request format: range holds up to %d %s points, at most %d are returned"
+                    .formatted(buckets, seriesResolution.name().toLowerCase(Locale.ROOT), maxSeriesPoints));
+        }
+        return new SeriesResponseDTO(cityId, seriesResolution,
+                measurementRepository.queryCitySeries(cityId, from, to, seriesResolution));
     }
 
     @Override
     @Transactional(readOnly = true)
     public void generateMonthlyHighestPM10Report() {
-        String fileName = FILE_PREFIX + LocalDate.now().minusMonths(1).format(FILE_NAME_FORMATTER) + ".csv";
+        String fileName = FILE_PREFIX + LocalDate.now(clock).minusMonths(1).format(FILE_NAME_FORMATTER) + ".csv";
         measurementRepository.generateMonthlyHighestPM10Report(reportLocation + fileName);
     }
 
+    /**
+     * Archives all the measurements except the ones from the last {@code archive.hot-months} months, counting
+     * the current one. Runs in a transaction of its own, see {@link MeasurementArchive}.
+     */
+    @Override
+    public void archiveCompletedMonths() {
+        measurementArchive.archiveBefore(YearMonth.now(clock).minusMonths(hotMonths - 1));
+    }
+
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(WORST_NO2_CITIES_CACHE)
     public List<CityNo2YearToYearResponseDTO> getWorstNo2CitiesYearToYear() {
         return measurementRepository.queryWorstNo2CitiesYearToYear();
     }
+
+    /**
+     * Same cities as {@link #getWorstNo2CitiesYearToYear()}, written to the output as Arrow record batches straight
+     * from the query results. Not cached, the report is computed from the monthly statistics only.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportWorstNo2CitiesYearToYear(OutputStream output) {
+        measurementExporter.exportWorstNo2CitiesYearToYear(output);
+    }
+
+    /**
+     * Writes the measurements to the output as they are read, holding a connection until the whole export is written.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportMeasurements(MeasurementExport export, OutputStream output) {
+        measurementExporter.export(export, output);
+    }
 }
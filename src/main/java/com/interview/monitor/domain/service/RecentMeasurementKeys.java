@@ -0,0 +1,60 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.Measurement;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sensor and timestamp of the most recently submitted measurements, holding at most the given number of keys and
+ * forgetting the oldest ones first. Catches the measurements sent again by sensors retrying on a timeout without
+ * reading the database, duplicates of the forgotten ones are still skipped when the batch is saved.
+ * <p>
+ * Each key is kept with the future of the original measurement, so a duplicate is acknowledged only once the original
+ * is written. A key is forgotten as soon as its measurement fails, so it is accepted when sent again.
+ */
+final class RecentMeasurementKeys {
+    private final Map<Key, CompletableFuture<Void>> keys;
+
+    RecentMeasurementKeys(int capacity) {
+        this.keys = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Void>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the future of the measurement of the same sensor and timestamp added before, or null when there is none
+     * and the given future was added
+     */
+    CompletableFuture<Void> addIfAbsent(Measurement measurement, CompletableFuture<Void> flushed) {
+        Key key = Key.of(measurement);
+        synchronized (this) {
+            CompletableFuture<Void> original = keys.putIfAbsent(key, flushed);
+            if (original != null) {
+                return original;
+            }
+        }
+        flushed.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                remove(key, flushed);
+            }
+        });
+        return null;
+    }
+
+    private synchronized void remove(Key key, CompletableFuture<Void> flushed) {
+        keys.remove(key, flushed);
+    }
+
+    private record Key(UUID sensorId, Instant timestamp) {
+        private static Key of(Measurement measurement) {
+            return new Key(measurement.sensorId(), measurement.timestamp());
+        }
+    }
+}
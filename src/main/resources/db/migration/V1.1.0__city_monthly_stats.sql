@@ -0,0 +1,38 @@
+----- Monthly statistics of each city -----
+
+-- Maintained together with the measurements table, bit N of days_mask is set when there are measurements from
+-- day N + 1 of the month
+CREATE TABLE IF NOT EXISTS city_monthly_stats (
+    city_id UUID NOT NULL,
+    month DATE NOT NULL,
+    count BIGINT NOT NULL,
+    min_pm10 DECIMAL(10, 2) NOT NULL,
+    max_pm10 DECIMAL(10, 2) NOT NULL,
+    sum_pm10 DECIMAL(38, 2) NOT NULL,
+    min_co DECIMAL(10, 2) NOT NULL,
+    max_co DECIMAL(10, 2) NOT NULL,
+    sum_co DECIMAL(38, 2) NOT NULL,
+    min_no2 DECIMAL(10, 2) NOT NULL,
+    max_no2 DECIMAL(10, 2) NOT NULL,
+    sum_no2 DECIMAL(38, 2) NOT NULL,
+    days_mask BIGINT NOT NULL,
+    PRIMARY KEY (city_id, month)
+);
+
+INSERT INTO city_monthly_stats
+SELECT
+    city_id,
+    DATE_TRUNC('month', timestamp)::DATE AS month,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2),
+    BIT_OR(1::BIGINT << (day(timestamp) - 1))
+FROM measurements
+GROUP BY ALL;
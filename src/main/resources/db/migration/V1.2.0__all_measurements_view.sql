@@ -0,0 +1,7 @@
+----- All measurements, including the archived ones -----
+
+-- Recreated by the application with the archived Parquet files added once there are any, 'year' and 'month' are
+-- the partition columns of the archive, filtering by them skips the files of other months
+CREATE OR REPLACE VIEW all_measurements AS
+SELECT id, sensor_id, city_id, pm10, co, no2, timestamp, year(timestamp) AS year, month(timestamp) AS month
+FROM measurements;
@@ -0,0 +1,7 @@
+----- Hash of the city attributes maintained by the directory refresh -----
+
+-- Compared with the hash of the fetched city, so only new and changed cities are written, region_id is left out as
+-- the refresh never updates it
+ALTER TABLE cities ADD COLUMN record_hash UBIGINT;
+
+UPDATE cities SET record_hash = hash(name, country, region);
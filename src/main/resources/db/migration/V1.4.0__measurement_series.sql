@@ -0,0 +1,109 @@
+----- Downsampled series of measurements -----
+
+-- Maintained together with the measurements table, one row per city, sensor and minute, hour or day. Buckets start at
+-- the truncated timestamp of the measurements, min/max/sum/count of every value let any bucket be merged into a coarser
+-- one. Measurements archived before this migration are not included
+CREATE TABLE IF NOT EXISTS measurements_1m (
+    city_id UUID NOT NULL,
+    sensor_id UUID NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    count BIGINT NOT NULL,
+    min_pm10 DECIMAL(10, 2) NOT NULL,
+    max_pm10 DECIMAL(10, 2) NOT NULL,
+    sum_pm10 DECIMAL(38, 2) NOT NULL,
+    min_co DECIMAL(10, 2) NOT NULL,
+    max_co DECIMAL(10, 2) NOT NULL,
+    sum_co DECIMAL(38, 2) NOT NULL,
+    min_no2 DECIMAL(10, 2) NOT NULL,
+    max_no2 DECIMAL(10, 2) NOT NULL,
+    sum_no2 DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (city_id, bucket, sensor_id)
+);
+
+CREATE TABLE IF NOT EXISTS measurements_1h (
+    city_id UUID NOT NULL,
+    sensor_id UUID NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    count BIGINT NOT NULL,
+    min_pm10 DECIMAL(10, 2) NOT NULL,
+    max_pm10 DECIMAL(10, 2) NOT NULL,
+    sum_pm10 DECIMAL(38, 2) NOT NULL,
+    min_co DECIMAL(10, 2) NOT NULL,
+    max_co DECIMAL(10, 2) NOT NULL,
+    sum_co DECIMAL(38, 2) NOT NULL,
+    min_no2 DECIMAL(10, 2) NOT NULL,
+    max_no2 DECIMAL(10, 2) NOT NULL,
+    sum_no2 DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (city_id, bucket, sensor_id)
+);
+
+CREATE TABLE IF NOT EXISTS measurements_1d (
+    city_id UUID NOT NULL,
+    sensor_id UUID NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    count BIGINT NOT NULL,
+    min_pm10 DECIMAL(10, 2) NOT NULL,
+    max_pm10 DECIMAL(10, 2) NOT NULL,
+    sum_pm10 DECIMAL(38, 2) NOT NULL,
+    min_co DECIMAL(10, 2) NOT NULL,
+    max_co DECIMAL(10, 2) NOT NULL,
+    sum_co DECIMAL(38, 2) NOT NULL,
+    min_no2 DECIMAL(10, 2) NOT NULL,
+    max_no2 DECIMAL(10, 2) NOT NULL,
+    sum_no2 DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (city_id, bucket, sensor_id)
+);
+
+INSERT INTO measurements_1m
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 minute', timestamp) AS bucket,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2)
+FROM measurements
+GROUP BY ALL;
+
+INSERT INTO measurements_1h
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 hour', bucket) AS bucket,
+    SUM(count),
+    MIN(min_pm10),
+    MAX(max_pm10),
+    SUM(sum_pm10),
+    MIN(min_co),
+    MAX(max_co),
+    SUM(sum_co),
+    MIN(min_no2),
+    MAX(max_no2),
+    SUM(sum_no2)
+FROM measurements_1m
+GROUP BY ALL;
+
+INSERT INTO measurements_1d
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 day', bucket) AS bucket,
+    SUM(count),
+    MIN(min_pm10),
+    MAX(max_pm10),
+    SUM(sum_pm10),
+    MIN(min_co),
+    MAX(max_co),
+    SUM(sum_co),
+    MIN(min_no2),
+    MAX(max_no2),
+    SUM(sum_no2)
+FROM measurements_1h
+GROUP BY ALL;
@@ -0,0 +1,97 @@
+----- Duplicated measurements -----
+
+-- Measurements are identified by their sensor and timestamp, of the ones saved more than once the first is kept
+CREATE TEMP TABLE duplicate_measurements AS
+SELECT id, city_id, sensor_id, timestamp
+FROM measurements
+QUALIFY row_number() OVER (PARTITION BY sensor_id, timestamp ORDER BY id) > 1;
+
+DELETE FROM measurements WHERE id IN (SELECT id FROM duplicate_measurements);
+
+-- Months and buckets of the duplicates are recomputed from the measurements left. Measurements arriving late for an
+-- archived month are saved to the measurements table, and the series keep the buckets of archived months, so they are
+-- recomputed together with the archived measurements
+INSERT OR REPLACE INTO city_monthly_stats
+SELECT
+    city_id,
+    DATE_TRUNC('month', timestamp)::DATE AS month,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2),
+    BIT_OR(1::BIGINT << (day(timestamp) - 1))
+FROM all_measurements m
+SEMI JOIN duplicate_measurements d
+    ON d.city_id = m.city_id AND DATE_TRUNC('month', d.timestamp) = DATE_TRUNC('month', m.timestamp)
+GROUP BY ALL;
+
+INSERT OR REPLACE INTO measurements_1m
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 minute', timestamp) AS bucket,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2)
+FROM all_measurements m
+SEMI JOIN duplicate_measurements d
+    ON d.sensor_id = m.sensor_id
+    AND time_bucket(INTERVAL '1 minute', d.timestamp) = time_bucket(INTERVAL '1 minute', m.timestamp)
+GROUP BY ALL;
+
+INSERT OR REPLACE INTO measurements_1h
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 hour', timestamp) AS bucket,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2)
+FROM all_measurements m
+SEMI JOIN duplicate_measurements d
+    ON d.sensor_id = m.sensor_id
+    AND time_bucket(INTERVAL '1 hour', d.timestamp) = time_bucket(INTERVAL '1 hour', m.timestamp)
+GROUP BY ALL;
+
+INSERT OR REPLACE INTO measurements_1d
+SELECT
+    city_id,
+    sensor_id,
+    time_bucket(INTERVAL '1 day', timestamp) AS bucket,
+    COUNT(*),
+    MIN(pm10),
+    MAX(pm10),
+    SUM(pm10),
+    MIN(co),
+    MAX(co),
+    SUM(co),
+    MIN(no2),
+    MAX(no2),
+    SUM(no2)
+FROM all_measurements m
+SEMI JOIN duplicate_measurements d
+    ON d.sensor_id = m.sensor_id
+    AND time_bucket(INTERVAL '1 day', d.timestamp) = time_bucket(INTERVAL '1 day', m.timestamp)
+GROUP BY ALL;
+
+DROP TABLE duplicate_measurements;
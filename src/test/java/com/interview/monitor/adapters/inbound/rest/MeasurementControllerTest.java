@@ -1,57 +1,102 @@
 package com.interview.monitor.adapters.inbound.rest;
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.MeasurementRequestDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesPointResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesResponseDTO;
+import com.interview.monitor.domain.exception.IngestionOverloadedException;
+import com.interview.monitor.domain.exception.ValidationException;
+import com.interview.monitor.domain.model.ExportFormat;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.model.SeriesResolution;
+import com.interview.monitor.domain.ports.inbound.CityService;
 import com.interview.monitor.domain.ports.inbound.MeasurementService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static com.interview.monitor.testutils.TestConstants.PLOCK_CITY_ID;
 import static com.interview.monitor.testutils.TestConstants.WARSZAWA_CITY_ID;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(MeasurementController.class)
+@Import(MeasurementBatchReader.class)
 class MeasurementControllerTest {
     private static final String API = "/api";
     private static final String SAVE_MEASURE = API + "/save-measure";
+    private static final String SAVE_MEASUREMENT_BATCH = API + "/measurements/batch";
     private static final String GET_RISING_CITY_STATS = API + "/stats/5M/{regionId}";
     private static final String GET_CITY_STATS_LAST_HOUR = API + "/stats/1H/city/{cityId}";
+    private static final String GET_REGION_STATS_LAST_HOUR = API + "/stats/1H/region/{regionId}";
+    private static final String GET_CITIES_STATS_LAST_HOUR = API + "/stats/1H/cities";
     private static final String GET_WORST_NO2_CITIES_YEAR2YEAR = API + "/report/worst-cities-no2-y2y";
+    private static final String EXPORT_MEASUREMENTS = API + "/export/measurements";
+    private static final String GET_CITY_SERIES = API + "/series/{cityId}";
     private static final String CONTENT_TYPE = "Content-type";
 
     private static final String SENSOR_ID = UUID.randomUUID().toString();
     private static final String CITY_ID = UUID.randomUUID().toString();
-    private static final BigDecimal PM_10 = new BigDecimal("23.1");
-    private static final BigDecimal CO = new BigDecimal("12.4");
-    private static final BigDecimal NO_2 = new BigDecimal("0.39");
+    private static final long PM_10 = 2310;
+    private static final long CO = 1240;
+    private static final long NO_2 = 39;
     private static final long TIMESTAMP = 1742332376L;
 
     @MockitoBean
     MeasurementService measurementService;
 
+    @MockitoBean
+    CityService cityService;
+
     @Autowired
     MockMvc mockMvc;
 
     @Autowired
     ObjectMapper objectMapper;
 
+    @Value("${ingestion.batch-size}")
+    int chunkSize;
+
+    @BeforeEach
+    void setUp() {
+        given(cityService.isKnownCity(UUID.fromString(CITY_ID))).willReturn(true);
+    }
+
     @Test
     void postMeasurement_shouldReturnClientError_whenIncorrectContentType() throws Exception {
         // given
@@ -107,6 +152,189 @@ class MeasurementControllerTest {
         verify(measurementService).save(Measurement.fromRequest(request));
     }
 
+    @Test
+    void postMeasurement_shouldReturnTooManyRequests_whenIngestionIsOverloaded() throws Exception {
+        // given
+        var request = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        willThrow(new IngestionOverloadedException("Too many measurements waiting to be saved, try again later"))
+                .given(measurementService).save(any());
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASURE)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(content().string("{\"status\":429," +
+                                            "\"message\":\"Too many measurements waiting to be saved, try again later\"}"));
+    }
+
+    @Test
+    void postMeasurement_shouldReturnClientError_whenCityIsUnknown() throws Exception {
+        // given
+        var request = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        willThrow(new ValidationException("Unknown city: " + CITY_ID)).given(measurementService).save(any());
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASURE)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is4xxClientError())
+                .andExpect(content().string("{\"status\":400,\"message\":\"Unknown city: " + CITY_ID + "\"}"));
+    }
+
+    @Test
+    void postMeasurementBatch_shouldSaveValidMeasurementsAndReportRejects() throws Exception {
+        // given
+        var valid1 = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        var missingSensorId = new MeasurementRequestDTO(null, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        var invalidSensorId = new MeasurementRequestDTO("null", CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        var valid2 = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP + 60);
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid1, missingSensorId, invalidSensorId, valid2))))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().string("{\"accepted\":2,\"rejected\":2,\"rejects\":[" +
+                                            "{\"index\":1,\"reason\":\"Request validation failed. Reason: sensorId is required\"}," +
+                                            "{\"index\":2,\"reason\":\"Incorrect request format: Invalid UUID string: null\"}]}"));
+
+        verify(measurementService).saveAll(List.of(Measurement.fromRequest(valid1), Measurement.fromRequest(valid2)));
+    }
+
+    @Test
+    void postMeasurementBatch_shouldProcessNdJson() throws Exception {
+        // given
+        var valid1 = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        var valid2 = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP + 60);
+        String body = objectMapper.writeValueAsString(valid1) + "\n{malformed\n" + objectMapper.writeValueAsString(valid2) + "\n";
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejects[0].index").value(1));
+
+        verify(measurementService).saveAll(List.of(Measurement.fromRequest(valid1), Measurement.fromRequest(valid2)));
+    }
+
+    @Test
+    void postMeasurementBatch_shouldRejectNdJsonLine_whenTooLong() throws Exception {
+        // given
+        var valid = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        String body = "{\"sensorId\":\"" + "x".repeat(20_000) + "\"}\n" + objectMapper.writeValueAsString(valid);
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().string("{\"accepted\":1,\"rejected\":1,\"rejects\":[" +
+                                            "{\"index\":0,\"reason\":\"Line longer than 16384 characters\"}]}"));
+
+        verify(measurementService).saveAll(List.of(Measurement.fromRequest(valid)));
+    }
+
+    @Test
+    void postMeasurementBatch_shouldRejectMeasurementsOfUnknownCities() throws Exception {
+        // given
+        String unknownCityId = UUID.randomUUID().toString();
+        var valid = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        var unknownCity = new MeasurementRequestDTO(SENSOR_ID, unknownCityId, PM_10, CO, NO_2, TIMESTAMP);
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(unknownCity, valid))))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().string("{\"accepted\":1,\"rejected\":1,\"rejects\":[" +
+                                            "{\"index\":0,\"reason\":\"Unknown city: " + unknownCityId + "\"}]}"));
+
+        verify(measurementService).saveAll(List.of(Measurement.fromRequest(valid)));
+    }
+
+    @Test
+    void postMeasurementBatch_shouldReturnClientError_whenBodyIsNotAnArray() throws Exception {
+        // given
+        var request = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().is4xxClientError())
+                .andExpect(content().string("{\"status\":400," +
+                                            "\"message\":\"Request body should be a JSON array of measurements\"}"));
+
+        verify(measurementService, never()).saveAll(any());
+    }
+
+    @Test
+    void postMeasurementBatch_shouldReportSavedMeasurements_whenLaterChunkFails() throws Exception {
+        // given
+        var valid = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        String line = objectMapper.writeValueAsString(valid) + "\n";
+        String body = line.repeat(2 * chunkSize + 1);
+        willAnswer(invocation -> null)
+                .willThrow(new IngestionOverloadedException("Too many measurements waiting to be saved, try again later"))
+                .given(measurementService).saveAll(any());
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().string(("{\"accepted\":%1$d,\"rejected\":%1$d,\"rejects\":[{\"index\":%1$d," +
+                                             "\"reason\":\"Saving stopped, this and the following measurements should be " +
+                                             "sent again: Too many measurements waiting to be saved, try again later\"}]}")
+                        .formatted(chunkSize)));
+
+        // The last measurement is not read once saving has failed
+        verify(measurementService, times(2)).saveAll(any());
+    }
+
+    @Test
+    void postMeasurementBatch_shouldReturnTooManyRequests_whenFirstChunkFails() throws Exception {
+        // given
+        var valid = new MeasurementRequestDTO(SENSOR_ID, CITY_ID, PM_10, CO, NO_2, TIMESTAMP);
+        willThrow(new IngestionOverloadedException("Too many measurements waiting to be saved, try again later"))
+                .given(measurementService).saveAll(any());
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid))))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void postMeasurementBatch_shouldReadValuesAsFixedPoint() throws Exception {
+        // given
+        String body = """
+                {"sensorId":"%1$s","cityId":"%2$s","pm10":23.1,"co":"12.4","no2":0.385,"timestamp":%3$d}
+                {"sensorId":"%1$s","cityId":"%2$s","pm10":7,"co":1.2e1,"no2":"-0","timestamp":%3$d}
+                {"sensorId":"%1$s","cityId":"%2$s","pm10":100000000,"co":1,"no2":1,"timestamp":%3$d}
+                {"sensorId":"%1$s","cityId":"%2$s","pm10":"abc","co":1,"no2":1,"timestamp":%3$d}
+                """.formatted(SENSOR_ID, CITY_ID, TIMESTAMP);
+
+        //when & then
+        mockMvc.perform(post(SAVE_MEASUREMENT_BATCH)
+                        .header(CONTENT_TYPE, MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.rejects[0].index").value(2))
+                .andExpect(jsonPath("$.rejects[1].index").value(3));
+
+        verify(measurementService).saveAll(List.of(
+                Measurement.fromRequest(new MeasurementRequestDTO(SENSOR_ID, CITY_ID, 2310L, 1240L, 39L, TIMESTAMP)),
+                Measurement.fromRequest(new MeasurementRequestDTO(SENSOR_ID, CITY_ID, 700L, 1200L, 0L, TIMESTAMP))));
+    }
+
     @Test
     void getRisingCityStats_shouldReturnClientError_whenIncorrectRegionId() throws Exception {
         //when & then
@@ -169,6 +397,67 @@ class MeasurementControllerTest {
         verify(measurementService).calculateCityStatsLastHour(cityId);
     }
 
+    @Test
+    void getRegionStatsLastHour_shouldStreamStatsOfEachCity() throws Exception {
+        // given
+        var regionId = UUID.randomUUID();
+        var cityStats = new CityStatsResponseDTO(
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"));
+        given(measurementService.calculateRegionStatsLastHour(regionId)).willReturn(Stream.of(
+                new CityStatsLastHourResponseDTO(WARSZAWA_CITY_ID, cityStats),
+                new CityStatsLastHourResponseDTO(PLOCK_CITY_ID, cityStats)));
+
+        // when
+        MvcResult result = mockMvc.perform(get(GET_REGION_STATS_LAST_HOUR, regionId.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].cityId").value(WARSZAWA_CITY_ID.toString()))
+                .andExpect(jsonPath("$[0].avgNO2LastHour").value(53.33))
+                .andExpect(jsonPath("$[1].cityId").value(PLOCK_CITY_ID.toString()));
+
+        verify(measurementService).calculateRegionStatsLastHour(regionId);
+    }
+
+    @Test
+    void getCitiesStatsLastHour_shouldStreamEmptyArray_whenNoStats() throws Exception {
+        // given
+        var cityIds = List.of(WARSZAWA_CITY_ID, PLOCK_CITY_ID);
+        given(measurementService.calculateCitiesStatsLastHour(cityIds)).willReturn(Stream.empty());
+
+        // when
+        MvcResult result = mockMvc.perform(post(GET_CITIES_STATS_LAST_HOUR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cityIds)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().json("[]"));
+
+        verify(measurementService).calculateCitiesStatsLastHour(cityIds);
+    }
+
+    @Test
+    void getCitiesStatsLastHour_shouldReturnClientError_whenCityIdIsNull() throws Exception {
+        //when & then
+        mockMvc.perform(post(GET_CITIES_STATS_LAST_HOUR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"%s\", null]".formatted(WARSZAWA_CITY_ID)))
+                .andExpect(status().is4xxClientError());
+
+        verify(measurementService, never()).calculateCitiesStatsLastHour(any());
+    }
+
     @Test
     void getWorstNo2CitiesYearToYear_shouldProcessValidRequest() throws Exception {
         // given
@@ -185,4 +474,191 @@ class MeasurementControllerTest {
         verify(measurementService).getWorstNo2CitiesYearToYear();
     }
 
-}
\ No newline at end of file
+    @Test
+    void getWorstNo2CitiesYearToYear_shouldStreamArrow_whenAccepted() throws Exception {
+        // given
+        willAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write(new byte[]{1, 2, 3});
+            return null;
+        }).given(measurementService).exportWorstNo2CitiesYearToYear(any());
+
+        // when
+        MvcResult result = mockMvc.perform(get(GET_WORST_NO2_CITIES_YEAR2YEAR)
+                        .header("Accept", "application/vnd.apache.arrow.stream, application/json;q=0.9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType("application/vnd.apache.arrow.stream"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+
+        verify(measurementService, never()).getWorstNo2CitiesYearToYear();
+    }
+
+    @Test
+    void getWorstNo2CitiesYearToYear_shouldReturnJson_whenPreferredToArrow() throws Exception {
+        // given
+        given(measurementService.getWorstNo2CitiesYearToYear()).willReturn(List.of());
+
+        //when & then
+        mockMvc.perform(get(GET_WORST_NO2_CITIES_YEAR2YEAR)
+                        .header("Accept", "application/json, application/vnd.apache.arrow.stream;q=0.5"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[]"));
+
+        verify(measurementService, never()).exportWorstNo2CitiesYearToYear(any());
+    }
+
+    @Test
+    void getWorstNo2CitiesYearToYear_shouldReturnJson_whenAnyTypeAccepted() throws Exception {
+        // given
+        given(measurementService.getWorstNo2CitiesYearToYear()).willReturn(List.of());
+
+        //when & then
+        mockMvc.perform(get(GET_WORST_NO2_CITIES_YEAR2YEAR)
+                        .header("Accept", "*/*"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+
+        verify(measurementService, never()).exportWorstNo2CitiesYearToYear(any());
+    }
+
+    @Test
+    void getCitySeries_shouldPickResolution_whenAuto() throws Exception {
+        // given
+        var from = Instant.parse("2025-01-01T00:00:00Z");
+        var to = Instant.parse("2025-02-01T00:00:00Z");
+        var point = new SeriesPointResponseDTO(from, 2,
+                new BigDecimal("0.39"), new BigDecimal("0.39"), new BigDecimal("0.39"),
+                new BigDecimal("12.4"), new BigDecimal("12.40"), new BigDecimal("12.40"),
+                new BigDecimal("23.1"), new BigDecimal("23.10"), new BigDecimal("23.10"));
+        given(measurementService.getCitySeries(WARSZAWA_CITY_ID, from, to, null, 30))
+                .willReturn(new SeriesResponseDTO(WARSZAWA_CITY_ID, SeriesResolution.DAY, List.of(point)));
+
+        //when & then
+        mockMvc.perform(get(GET_CITY_SERIES, WARSZAWA_CITY_ID)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("points", "30"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.cityId").value(WARSZAWA_CITY_ID.toString()))
+                .andExpect(jsonPath("$.resolution").value("DAY"))
+                .andExpect(jsonPath("$.points[0].timestamp").value("2025-01-01T00:00:00Z"))
+                .andExpect(jsonPath("$.points[0].count").value(2))
+                .andExpect(jsonPath("$.points[0].avgPM10").value(23.1));
+    }
+
+    @Test
+    void getCitySeries_shouldUseChosenResolution() throws Exception {
+        // given
+        var from = Instant.parse("2025-01-01T00:00:00Z");
+        var to = Instant.parse("2025-02-01T00:00:00Z");
+        given(measurementService.getCitySeries(WARSZAWA_CITY_ID, from, to, SeriesResolution.HOUR, 100))
+                .willReturn(new SeriesResponseDTO(WARSZAWA_CITY_ID, SeriesResolution.HOUR, List.of()));
+
+        //when & then
+        mockMvc.perform(get(GET_CITY_SERIES, WARSZAWA_CITY_ID)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("resolution", "hour"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.resolution").value("HOUR"))
+                .andExpect(jsonPath("$.points").isEmpty());
+    }
+
+    @Test
+    void getCitySeries_shouldReturnClientError_whenUnknownResolution() throws Exception {
+        //when & then
+        mockMvc.perform(get(GET_CITY_SERIES, WARSZAWA_CITY_ID)
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z")
+                        .param("resolution", "week"))
+                .andExpect(status().is4xxClientError())
+                .andExpect(content().string("{\"status\":400,\"message\":\"Incorrect request format: unknown resolution 'week'\"}"));
+
+        verify(measurementService, never()).getCitySeries(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getCitySeries_shouldReturnClientError_whenPointsNotPositive() throws Exception {
+        //when & then
+        mockMvc.perform(get(GET_CITY_SERIES, WARSZAWA_CITY_ID)
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z")
+                        .param("points", "0"))
+                .andExpect(status().is4xxClientError());
+
+        verify(measurementService, never()).getCitySeries(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void exportMeasurements_shouldStreamExport() throws Exception {
+        // given
+        var from = Instant.parse("2025-01-01T00:00:00Z");
+        var to = Instant.parse("2025-02-01T00:00:00Z");
+        var export = new MeasurementExport(from, to, WARSZAWA_CITY_ID, ExportFormat.CSV);
+        willAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("id,sensor_id\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(measurementService).exportMeasurements(any(), any());
+
+        // when
+        MvcResult result = mockMvc.perform(get(EXPORT_MEASUREMENTS)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("cityId", WARSZAWA_CITY_ID.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"measurements.csv\""))
+                .andExpect(content().string("id,sensor_id\n"));
+
+        verify(measurementService).exportMeasurements(eq(export), any());
+    }
+
+    @Test
+    void exportMeasurements_shouldAcceptFormatInAnyCase() throws Exception {
+        // when
+        MvcResult result = mockMvc.perform(get(EXPORT_MEASUREMENTS)
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z")
+                        .param("format", "Arrow"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentType("application/vnd.apache.arrow.stream"));
+    }
+
+    @Test
+    void exportMeasurements_shouldReturnClientError_whenUnknownFormat() throws Exception {
+        //when & then
+        mockMvc.perform(get(EXPORT_MEASUREMENTS)
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z")
+                        .param("format", "xlsx"))
+                .andExpect(status().is4xxClientError());
+
+        verify(measurementService, never()).exportMeasurements(any(), any());
+    }
+
+    @Test
+    void exportMeasurements_shouldReturnClientError_whenFromNotBeforeTo() throws Exception {
+        //when & then
+        mockMvc.perform(get(EXPORT_MEASUREMENTS)
+                        .param("from", "2025-02-01T00:00:00Z")
+                        .param("to", "2025-01-01T00:00:00Z"))
+                .andExpect(status().is4xxClientError());
+
+        verify(measurementService, never()).exportMeasurements(any(), any());
+    }
+}
@@ -0,0 +1,215 @@
+package com.interview.monitor.adapters.inbound.rest;
+
+import com.interview.monitor.AirQualityMonitorApplication;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.SeriesResolution;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.interview.monitor.testutils.TestConstants.MEASUREMENT_TABLES;
+import static com.interview.monitor.testutils.TestConstants.SIEDLCE_CITY_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput and p99 latency of 'POST /api/save-measure' with platform and with virtual request threads.
+ * All connections send their measurements at once, like sensors reporting at the top of the minute, and every
+ * response waits for the batch containing the measurement to be committed. Skipped by default, run with:
+ * 'mvn verify -Dbenchmark=true -Dit.test=VirtualThreadLoadIT', the load can be changed with '-Dload.connections=...'
+ * and '-Dload.requests=...' (per connection).
+ * <p>
+ * Measurements are written by the flusher of the ingestion pipeline, so request threads never call DuckDB themselves.
+ * DuckDB calls made straight from platform and from virtual threads are compared separately, with
+ * '-Dload.duckdb-callers=...' callers making '-Dload.requests=...' calls each.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadLoadIT {
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 10_000);
+    private static final int REQUESTS_PER_CONNECTION = Integer.getInteger("load.requests", 5);
+    private static final int DUCKDB_CALLERS = Integer.getInteger("load.duckdb-callers", 1_000);
+    // Default number of Tomcat request threads
+    private static final int PLATFORM_CALLER_THREADS = 200;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    @Test
+    void compareThreadModes() throws InterruptedException {
+        // when
+        LoadResult platformThreads = runLoad(false);
+        LoadResult virtualThreads = runLoad(true);
+
+        // then
+        log.info("Platform threads: %s".formatted(platformThreads));
+        log.info("Virtual threads: %s".formatted(virtualThreads));
+        assertThat(platformThreads.failed()).isZero();
+        assertThat(virtualThreads.failed()).isZero();
+    }
+
+    /**
+     * Every call writes a measurement in a transaction of its own, one call at a time, and reads the last hour series
+     * of its city in a read-only one, so taking the connections, the statements and the commits are all made from the
+     * calling thread.
+     */
+    @Test
+    void compareThreadModesForDuckDbCalls() throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AirQualityMonitorApplication.class)
+                .profiles("test")
+                .properties("server.port=0")
+                .run()) {
+            var jdbcTemplate = context.getBean(JdbcTemplate.class);
+            var measurementRepository = context.getBean(MeasurementRepository.class);
+            var transactionManager = context.getBean(PlatformTransactionManager.class);
+            var writeTransaction = new TransactionTemplate(transactionManager);
+            var readOnlyTransaction = new TransactionTemplate(transactionManager);
+            readOnlyTransaction.setReadOnly(true);
+            // Concurrent writes of the same city conflict in DuckDB, the pipeline has a single writer for that reason
+            var writer = new ReentrantLock(true);
+            Callable<Boolean> call = () -> {
+                Instant now = Instant.now();
+                writer.lock();
+                try {
+                    writeTransaction.executeWithoutResult(status -> measurementRepository.saveAll(List.of(
+                            new Measurement(Measurement.NO_ID, UUID.randomUUID(), SIEDLCE_CITY_ID, 2310, 1240, 39, now))));
+                } finally {
+                    writer.unlock();
+                }
+                return readOnlyTransaction.execute(status -> measurementRepository.queryCitySeries(
+                        SIEDLCE_CITY_ID, now.minus(Duration.ofHours(1)), now.plusSeconds(1), SeriesResolution.MINUTE))
+                        .size() > 0;
+            };
+            JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+            try {
+                // when
+                LoadResult platformThreads;
+                try (var callers = Executors.newFixedThreadPool(PLATFORM_CALLER_THREADS)) {
+                    platformThreads = runLoad(callers, DUCKDB_CALLERS, call);
+                }
+                LoadResult virtualThreads;
+                try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                    virtualThreads = runLoad(callers, DUCKDB_CALLERS, call);
+                }
+
+                // then
+                log.info("DuckDB calls from platform threads: %s".formatted(platformThreads));
+                log.info("DuckDB calls from virtual threads: %s".formatted(virtualThreads));
+                assertThat(platformThreads.failed()).isZero();
+                assertThat(virtualThreads.failed()).isZero();
+            } finally {
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+            }
+        }
+    }
+
+    private static LoadResult runLoad(boolean virtualThreads) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AirQualityMonitorApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "ingestion.durability=ACK_ON_FLUSH",
+                        // Both modes accept every connection, so only the request threads make the difference
+                        "server.tomcat.max-connections=" + CONNECTIONS,
+                        "server.tomcat.accept-count=" + CONNECTIONS)
+                .run()) {
+            var jdbcTemplate = context.getBean(JdbcTemplate.class);
+            JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+            try {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                return sendMeasurements(URI.create("http://localhost:%d/api/save-measure".formatted(port)));
+            } finally {
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+            }
+        }
+    }
+
+    private static LoadResult sendMeasurements(URI uri) throws InterruptedException {
+        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(TIMEOUT).build();
+             var connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            return runLoad(connections, CONNECTIONS, () -> send(client, uri));
+        }
+    }
+
+    /**
+     * All the callers start at once and make their calls one after another, a call fails when it returns false or
+     * throws.
+     */
+    private static LoadResult runLoad(ExecutorService callers, int callerCount, Callable<Boolean> call)
+            throws InterruptedException {
+        long[] latencies = new long[callerCount * REQUESTS_PER_CONNECTION];
+        var failed = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        for (int caller = 0; caller < callerCount; caller++) {
+            int first = caller * REQUESTS_PER_CONNECTION;
+            callers.submit(() -> {
+                start.await();
+                for (int i = first; i < first + REQUESTS_PER_CONNECTION; i++) {
+                    long startNanos = System.nanoTime();
+                    try {
+                        if (!call.call()) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - startNanos;
+                }
+                return null;
+            });
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        callers.shutdown();
+        assertThat(callers.awaitTermination(TIMEOUT.toMinutes() * 5, TimeUnit.MINUTES)).isTrue();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        Arrays.sort(latencies);
+        return new LoadResult(latencies.length, failed.get(),
+                latencies.length / (elapsedNanos / 1_000_000_000.0),
+                Duration.ofNanos(latencies[latencies.length / 2]).toMillis(),
+                Duration.ofNanos(latencies[(int) (latencies.length * 0.99)]).toMillis());
+    }
+
+    private static boolean send(HttpClient client, URI uri) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(uri)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"sensorId":"%s","cityId":"%s","pm10":23.1,"co":12.4,"no2":0.39,"timestamp":%d}"""
+                        .formatted(UUID.randomUUID(), SIEDLCE_CITY_ID, Instant.now().getEpochSecond())))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private record LoadResult(int requests, int failed, double requestsPerSecond, long p50Millis, long p99Millis) {
+        @Override
+        public String toString() {
+            return "%d requests, %d failed, %.0f requests/s, p50 %d ms, p99 %d ms"
+                    .formatted(requests, failed, requestsPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
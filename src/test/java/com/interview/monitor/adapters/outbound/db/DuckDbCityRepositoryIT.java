@@ -10,6 +10,8 @@ import org.springframework.test.context.ActiveProfiles;
 import java.util.List;
 import java.util.UUID;
 
+import static com.interview.monitor.testutils.TestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
@@ -58,6 +60,75 @@ class DuckDbCityRepositoryIT {
         assertEquals("RegionChanged", actual);
     }
 
+    @Test
+    void shouldKeepLastOccurrence_whenCityRepeatsInBatch() {
+        // given
+        var id = UUID.randomUUID();
+        var regionId = UUID.randomUUID();
+        var cities = List.of(
+                new City(id, "City", "Country", "Region", regionId),
+                new City(id, "City", "Country", "RegionChanged", regionId)
+        );
+
+        Integer countBefore = countCities();
+
+        // when
+        underTest.upsertAll(cities);
+
+        // then
+        assertEquals(countBefore + 1, countCities());
+        assertEquals("RegionChanged", selectCityRegion(id));
+    }
+
+    @Test
+    void shouldUpsertOnlyNewAndChangedCities() {
+        // given
+        var regionId = UUID.randomUUID();
+        City unchanged = new City(UUID.randomUUID(), "City1", "Country", "Region", regionId);
+        City changed = new City(UUID.randomUUID(), "City2", "Country", "Region", regionId);
+        underTest.upsertAll(List.of(unchanged, changed));
+        City added = new City(UUID.randomUUID(), "City3", "Country", "Region", regionId);
+
+        // when
+        int actual = underTest.upsertAll(List.of(unchanged, new City(changed.id(), "City2", "Country", "RegionChanged", regionId), added));
+
+        // then
+        assertEquals(2, actual);
+        assertEquals("RegionChanged", selectCityRegion(changed.id()));
+        assertEquals("Region", selectCityRegion(added.id()));
+    }
+
+    @Test
+    void shouldUpsertNothing_whenCitiesUnchanged() {
+        // given
+        var cities = List.of(
+                new City(UUID.randomUUID(), "City1", "Country1", "Region1", UUID.randomUUID()),
+                new City(UUID.randomUUID(), "City2", "Country2", "Region2", UUID.randomUUID())
+        );
+        underTest.upsertAll(cities);
+
+        // when
+        int actual = underTest.upsertAll(cities);
+
+        // then
+        assertEquals(0, actual);
+    }
+
+    @Test
+    void shouldFindAllCities() {
+        // when
+        List<City> actual = underTest.findAll();
+
+        // then
+        assertThat(actual).hasSize(countCities())
+                .extracting(City::id)
+                .contains(WARSZAWA_CITY_ID, RADOM_CITY_ID, PLOCK_CITY_ID, SIEDLCE_CITY_ID);
+        assertThat(actual).filteredOn(city -> city.id().equals(WARSZAWA_CITY_ID))
+                .singleElement()
+                .extracting(City::regionId)
+                .isEqualTo(MAZOWIECKIE_REGION_ID);
+    }
+
     private Integer countCities() {
         return jdbcTemplate.queryForObject("SELECT count(*) from cities", Integer.class);
     }
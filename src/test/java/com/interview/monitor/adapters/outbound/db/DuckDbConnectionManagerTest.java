@@ -0,0 +1,94 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.InvalidDataException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DuckDbConnectionManagerTest {
+    DuckDbDataSource dataSource;
+    ExecutorService platformExecutor;
+    DuckDbConnectionManager underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DuckDbDataSource("jdbc:duckdb:");
+        platformExecutor = Executors.newFixedThreadPool(2);
+        underTest = new DuckDbConnectionManager(dataSource, platformExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        platformExecutor.shutdown();
+        dataSource.close();
+    }
+
+    @Test
+    void execute_shouldCallDuckDbDirectly_whenCalledFromPlatformThread() {
+        // when
+        Thread callingThread = underTest.execute(conn -> Thread.currentThread());
+
+        // then
+        assertThat(callingThread).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void execute_shouldCallDuckDbOnPlatformThread_whenCalledFromVirtualThread() throws InterruptedException {
+        // given
+        var callingThread = new AtomicReference<Thread>();
+
+        // when
+        Thread.ofVirtual().start(() -> callingThread.set(underTest.execute(conn -> {
+            conn.createStatement().execute("SELECT 1");
+            return Thread.currentThread();
+        }))).join();
+
+        // then
+        assertThat(callingThread.get()).isNotNull();
+        assertThat(callingThread.get().isVirtual()).isFalse();
+    }
+
+    @Test
+    void execute_shouldThrowDatastoreException_whenDuckDbCallFailsOnPlatformThread() throws InterruptedException {
+        // given
+        var thrown = new AtomicReference<Throwable>();
+
+        // when
+        Thread.ofVirtual().start(() -> {
+            try {
+                underTest.executeWithoutResult(conn -> conn.createStatement().execute("SELECT * FROM missing_table"));
+            } catch (RuntimeException ex) {
+                thrown.set(ex);
+            }
+        }).join();
+
+        // then
+        assertThat(thrown.get()).isInstanceOf(DatastoreException.class).hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void execute_shouldThrowDatastoreException_whenDuckDbCallFails() {
+        // when & then
+        assertThatThrownBy(() -> underTest.executeWithoutResult(conn -> conn.createStatement().execute("SELECT * FROM missing_table")))
+                .isInstanceOf(DatastoreException.class)
+                .isNotInstanceOf(InvalidDataException.class)
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void execute_shouldThrowInvalidDataException_whenDuckDbRejectsData() {
+        // when & then
+        assertThatThrownBy(() -> underTest.executeWithoutResult(conn -> conn.createStatement().execute("SELECT CAST('abc' AS INTEGER)")))
+                .isInstanceOf(InvalidDataException.class)
+                .hasCauseInstanceOf(SQLException.class);
+    }
+}
@@ -0,0 +1,136 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.model.CityMinuteStats;
+import com.interview.monitor.domain.model.Measurement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.interview.monitor.testutils.TestConstants.MEASUREMENT_TABLES;
+import static com.interview.monitor.testutils.TestConstants.WARSZAWA_CITY_ID;
+import static com.interview.monitor.testutils.TestMeasurementGenerator.generateTestMeasurements;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DuckDbMeasurementArchiveIT {
+    private static final String TABLE_NAME = "measurements";
+    private static final String VIEW_NAME = "all_measurements";
+    private static final int CITY_BUCKETS = 4;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DuckDbConnectionManager connectionManager;
+
+    @Autowired
+    DuckDbMeasurementRepository measurementRepository;
+
+    @Autowired
+    DuckDbMeasurementArchive configuredArchive;
+
+    @TempDir
+    Path location;
+
+    DuckDbMeasurementArchive underTest;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+        underTest = new DuckDbMeasurementArchive(connectionManager, location.toString(), CITY_BUCKETS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+        // The view shouldn't keep reading the temporary archive
+        configuredArchive.refreshView();
+    }
+
+    @Test
+    void archiveBefore_shouldMoveMeasurementsOfOlderMonthsToPartitionedFiles() throws IOException {
+        // given
+        List<Measurement> measurements = generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3);
+        measurementRepository.saveAll(measurements);
+        YearMonth currentMonth = YearMonth.now();
+        long olderMonthsCount = measurements.stream()
+                .filter(measurement -> YearMonth.from(LocalDate.ofInstant(measurement.timestamp(), ZoneId.systemDefault())).isBefore(currentMonth))
+                .count();
+
+        // when
+        long actual = underTest.archiveBefore(currentMonth);
+
+        // then
+        assertThat(actual).isEqualTo(olderMonthsCount).isPositive();
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, TABLE_NAME)).isEqualTo(measurements.size() - olderMonthsCount);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, VIEW_NAME)).isEqualTo(measurements.size());
+
+        YearMonth previousMonth = currentMonth.minusMonths(1);
+        Path previousMonthPartition = location.resolve("year=%d".formatted(previousMonth.getYear()))
+                .resolve("month=%d".formatted(previousMonth.getMonthValue()));
+        try (Stream<Path> files = Files.list(previousMonthPartition)) {
+            assertThat(files).singleElement()
+                    .satisfies(bucket -> assertThat(bucket.getFileName().toString()).startsWith("city_bucket="));
+        }
+    }
+
+    @Test
+    void archiveBefore_shouldKeepArchivedMeasurementsQueryable() {
+        // given
+        List<Measurement> measurements = generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3);
+        measurementRepository.saveAll(measurements);
+        Instant since = measurements.getFirst().timestamp();
+        List<CityMinuteStats> expected = measurementRepository.queryCityMinuteStatsSince(since);
+
+        // when
+        underTest.archiveBefore(YearMonth.now());
+
+        // then
+        List<CityMinuteStats> actual = measurementRepository.queryCityMinuteStatsSince(since);
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void archiveBefore_shouldAddLateMeasurementsToArchivedMonth() {
+        // given
+        List<Measurement> measurements = generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3);
+        List<Measurement> lateMeasurements = generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3);
+        measurementRepository.saveAll(measurements);
+        underTest.archiveBefore(YearMonth.now());
+        measurementRepository.saveAll(lateMeasurements);
+
+        // when
+        underTest.archiveBefore(YearMonth.now());
+
+        // then
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, VIEW_NAME)).isEqualTo(measurements.size() + lateMeasurements.size());
+    }
+
+    @Test
+    void archiveBefore_shouldNotArchiveAnything_whenNoOlderMeasurements() {
+        // when
+        long actual = underTest.archiveBefore(YearMonth.now());
+
+        // then
+        assertThat(actual).isZero();
+        assertThat(location).isEmptyDirectory();
+    }
+}
@@ -0,0 +1,218 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.model.ExportFormat;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.interview.monitor.testutils.TestConstants.MEASUREMENT_TABLES;
+import static com.interview.monitor.testutils.TestConstants.PLOCK_CITY_ID;
+import static com.interview.monitor.testutils.TestConstants.RADOM_CITY_ID;
+import static com.interview.monitor.testutils.TestConstants.WARSZAWA_CITY_ID;
+import static com.interview.monitor.testutils.TestMeasurementGenerator.generateTestMeasurements;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DuckDbMeasurementExporterIT {
+    private static final String CSV_HEADER = "id,sensor_id,city_id,pm10,co,no2,timestamp";
+    private static final int FETCH_SIZE = 10;
+    private static final int MAX_CONCURRENT_EXPORTS = 1;
+    private static final Duration WAIT_TIMEOUT = Duration.ofMillis(100);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DuckDbConnectionManager connectionManager;
+
+    @Autowired
+    DuckDbMeasurementRepository measurementRepository;
+
+    @Autowired
+    BufferAllocator allocator;
+
+    @TempDir
+    Path directory;
+
+    DuckDbMeasurementExporter underTest;
+
+    List<Measurement> warszawaMeasurements;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+        underTest = new DuckDbMeasurementExporter(connectionManager, allocator, FETCH_SIZE, MAX_CONCURRENT_EXPORTS,
+                WAIT_TIMEOUT);
+        warszawaMeasurements = generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3);
+        measurementRepository.saveAll(warszawaMeasurements);
+        measurementRepository.saveAll(generateTestMeasurements(RADOM_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+    }
+
+    @Test
+    void export_shouldWriteCsvWithMeasurementsOfTimeRange() {
+        // given
+        Instant from = warszawaMeasurements.get(2).timestamp();
+        Instant to = warszawaMeasurements.get(12).timestamp();
+        var output = new ByteArrayOutputStream();
+
+        // when
+        underTest.export(new MeasurementExport(from, to, WARSZAWA_CITY_ID, ExportFormat.CSV), output);
+
+        // then
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines.getFirst()).isEqualTo(CSV_HEADER);
+        assertThat(lines.subList(1, lines.size()))
+                .hasSize(10)
+                .allSatisfy(line -> assertThat(line.split(",")).hasSize(7).contains(WARSZAWA_CITY_ID.toString(), "23.10"));
+    }
+
+    @Test
+    void export_shouldWriteArrowStreamOfAllCities() throws IOException {
+        // given
+        var output = new ByteArrayOutputStream();
+
+        // when
+        underTest.export(new MeasurementExport(Instant.EPOCH, Instant.now(), null, ExportFormat.ARROW), output);
+
+        // then
+        long rows = 0;
+        try (var reader = new ArrowStreamReader(new ByteArrayInputStream(output.toByteArray()), allocator)) {
+            while (reader.loadNextBatch()) {
+                assertThat(reader.getVectorSchemaRoot().getRowCount()).isLessThanOrEqualTo(FETCH_SIZE);
+                rows += reader.getVectorSchemaRoot().getRowCount();
+            }
+        }
+        assertThat(rows).isEqualTo(warszawaMeasurements.size() * 2L);
+    }
+
+    @Test
+    void export_shouldWriteParquetOfSingleCity() throws IOException {
+        // given
+        Path file = directory.resolve("export.parquet");
+
+        // when
+        try (OutputStream output = Files.newOutputStream(file)) {
+            underTest.export(new MeasurementExport(Instant.EPOCH, Instant.now(), WARSZAWA_CITY_ID, ExportFormat.PARQUET), output);
+        }
+
+        // then
+        Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM read_parquet('%s') WHERE city_id = '%s'"
+                .formatted(file, WARSZAWA_CITY_ID), Long.class);
+        assertThat(rows).isEqualTo(warszawaMeasurements.size());
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM read_parquet('%s')".formatted(file), Long.class))
+                .isEqualTo(rows);
+    }
+
+    @Test
+    void export_shouldThrow_whenTooManyExportsInProgress() throws InterruptedException {
+        // given
+        var firstExportWriting = new CountDownLatch(1);
+        var firstExportRead = new CountDownLatch(1);
+        var slowClient = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                firstExportWriting.countDown();
+                try {
+                    firstExportRead.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        var export = new MeasurementExport(Instant.EPOCH, Instant.now(), null, ExportFormat.CSV);
+        Thread firstExport = Thread.ofPlatform().start(() -> underTest.export(export, slowClient));
+
+        // when & then
+        try {
+            firstExportWriting.await();
+            assertThatThrownBy(() -> underTest.export(export, new ByteArrayOutputStream()))
+                    .isInstanceOf(DatastoreException.class)
+                    .hasMessageContaining("Too many exports");
+        } finally {
+            firstExportRead.countDown();
+            firstExport.join();
+        }
+    }
+
+    @Test
+    void exportWorstNo2CitiesYearToYear_shouldWriteArrowStreamOfReport() throws IOException {
+        // given
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
+        measurementRepository.saveAll(generateTestMeasurements(PLOCK_CITY_ID, new BigDecimal("33.1"), new BigDecimal("22.4"), new BigDecimal("4.39"), 13, true));
+        measurementRepository.saveAll(generateTestMeasurements(RADOM_CITY_ID, new BigDecimal("13.1"), new BigDecimal("12.4"), new BigDecimal("0.19"), 13));
+        var output = new ByteArrayOutputStream();
+
+        // when
+        underTest.exportWorstNo2CitiesYearToYear(output);
+
+        // then
+        try (var reader = new ArrowStreamReader(new ByteArrayInputStream(output.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields()).extracting(Field::getName)
+                    .containsExactly("city", "cityId", "country", "avgNo2Current", "avgNo2YearBefore");
+            assertThat(reader.loadNextBatch()).isTrue();
+            assertThat(root.getRowCount()).isOne();
+            assertThat(root.getVector("cityId").getObject(0)).hasToString(PLOCK_CITY_ID.toString());
+            assertThat(((Float8Vector) root.getVector("avgNo2Current")).get(0)).isEqualTo(366.89, within(0.001));
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    @Test
+    void export_shouldStop_whenOutputFails() {
+        // given
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        var export = new MeasurementExport(Instant.EPOCH, Instant.now(), null, ExportFormat.CSV);
+
+        // when & then
+        assertThatThrownBy(() -> underTest.export(export, disconnected)).isInstanceOf(UncheckedIOException.class);
+        var output = new ByteArrayOutputStream();
+        underTest.export(export, output);
+        assertThat(output.toString(StandardCharsets.UTF_8).lines()).hasSize(warszawaMeasurements.size() * 2 + 1);
+    }
+}
@@ -2,7 +2,12 @@ package com.interview.monitor.adapters.outbound.db;
 
 import com.interview.monitor.adapters.inbound.rest.dto.CityNo2YearToYearResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesPointResponseDTO;
+import com.interview.monitor.domain.exception.InvalidDataException;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import com.interview.monitor.domain.model.Pollutant;
+import com.interview.monitor.domain.model.SeriesResolution;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -11,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.nio.file.Files;
@@ -18,7 +24,9 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -30,18 +38,60 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 @ActiveProfiles("test")
 class DuckDbMeasurementRepositoryIT {
-    private static final String TABLE_NAME = "measurements";
+    private static final String MONTHLY_STATS_TABLE_NAME = "city_monthly_stats";
+    private static final String MONTHLY_STATS_FROM_MEASUREMENTS_SQL = """
+            SELECT
+                city_id, DATE_TRUNC('month', timestamp)::DATE AS month, COUNT(*) AS count,
+                MIN(pm10) AS min_pm10, MAX(pm10) AS max_pm10, SUM(pm10) AS sum_pm10,
+                MIN(co) AS min_co, MAX(co) AS max_co, SUM(co) AS sum_co,
+                MIN(no2) AS min_no2, MAX(no2) AS max_no2, SUM(no2) AS sum_no2,
+                BIT_OR(1::BIGINT << (day(timestamp) - 1)) AS days_mask
+            FROM measurements
+            GROUP BY ALL
+            ORDER BY ALL
+            """;
+    private static final String MONTHLY_STATS_SQL = """
+            SELECT
+                city_id, month, count, min_pm10, max_pm10, sum_pm10, min_co, max_co, sum_co,
+                min_no2, max_no2, sum_no2, days_mask
+            FROM city_monthly_stats
+            ORDER BY ALL
+            """;
+    private static final String SERIES_FROM_MEASUREMENTS_SQL = """
+            SELECT
+                city_id, sensor_id, time_bucket(INTERVAL '%s', timestamp) AS bucket, COUNT(*) AS count,
+                MIN(pm10) AS min_pm10, MAX(pm10) AS max_pm10, SUM(pm10) AS sum_pm10,
+                MIN(co) AS min_co, MAX(co) AS max_co, SUM(co) AS sum_co,
+                MIN(no2) AS min_no2, MAX(no2) AS max_no2, SUM(no2) AS sum_no2
+            FROM measurements
+            GROUP BY ALL
+            ORDER BY ALL
+            """;
+    private static final String SERIES_SQL = """
+            SELECT
+                city_id, sensor_id, bucket, count, min_pm10, max_pm10, sum_pm10, min_co, max_co, sum_co,
+                min_no2, max_no2, sum_no2
+            FROM %s
+            ORDER BY ALL
+            """;
+    private static final Map<String, String> SERIES_TABLES = Map.of(
+            "measurements_1m", "1 minute",
+            "measurements_1h", "1 hour",
+            "measurements_1d", "1 day");
     public static final String WORST_CITIES_HEADER = "CITY,REGION,PM10";
 
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Autowired
     DuckDbMeasurementRepository underTest;
 
     @BeforeEach
     void clearTable() {
-        JdbcTestUtils.deleteFromTables(jdbcTemplate, TABLE_NAME);
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, MEASUREMENT_TABLES);
     }
 
     @Test
@@ -80,6 +130,129 @@ class DuckDbMeasurementRepositoryIT {
         assertEquals(countBefore + 3, countAfter);
     }
 
+    @Test
+    void saveAll_shouldRoundValuesLikeSingleInsert() {
+        // given
+        var timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        // when
+        underTest.save(createMeasurement(SIEDLCE_CITY_ID, "1.005", "23.1", "7", timestamp));
+        underTest.saveAll(List.of(createMeasurement(SIEDLCE_CITY_ID, "1.005", "23.1", "7", timestamp)));
+
+        // then
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT concat_ws(',', pm10, co, no2, timestamp) FROM measurements ORDER BY id", String.class);
+        assertThat(rows).hasSize(2);
+        assertEquals(rows.get(0), rows.get(1));
+        assertThat(rows.get(0)).startsWith("1.01,23.10,7.00,");
+    }
+
+    @Test
+    void save_shouldSkipMeasurement_whenSameSensorAndTimestampAlreadySaved() {
+        // given
+        var measurement = createValidMeasurement();
+        var retried = new Measurement(Measurement.NO_ID, measurement.sensorId(), measurement.cityId(),
+                measurement.pm10() + 1, measurement.co(), measurement.no2(), measurement.timestamp());
+
+        // when
+        boolean saved = underTest.save(measurement);
+        boolean savedAgain = underTest.save(retried);
+
+        // then
+        assertTrue(saved);
+        assertFalse(savedAgain);
+        assertEquals(1, countMeasurements());
+    }
+
+    @Test
+    void saveAll_shouldSkipMeasurementsAlreadySavedOrRepeatedInBatch() {
+        // given
+        var alreadySaved = createValidMeasurement();
+        var first = createValidMeasurement();
+        var second = createValidMeasurement();
+        underTest.save(alreadySaved);
+
+        // when
+        List<Measurement> saved = underTest.saveAll(List.of(first, alreadySaved, second, first));
+
+        // then
+        assertThat(saved).containsExactly(first, second);
+        assertEquals(3, countMeasurements());
+    }
+
+    @Test
+    void saveAll_shouldFail_whenCityDoesNotExist() {
+        // given
+        var measurement = createMeasurement(UUID.randomUUID(), "23.1", "12.4", "0.39", Instant.now());
+
+        // when & then
+        assertThrows(InvalidDataException.class, () -> underTest.saveAll(List.of(measurement)));
+        assertEquals(0, countMeasurements());
+    }
+
+    @Test
+    void shouldKeepMonthlyStatsInStepWithMeasurements() {
+        // given
+        var measurements = new ArrayList<Measurement>();
+        measurements.addAll(generateTestMeasurements(SIEDLCE_CITY_ID, new BigDecimal("23.1"), new BigDecimal("7.0"), new BigDecimal("0.34"), 3, true));
+        measurements.addAll(generateTestMeasurements(RADOM_CITY_ID, new BigDecimal("13.1"), new BigDecimal("12.4"), new BigDecimal("0.19"), 2));
+        // Sent again by the sensor, within the same batch and in the next one
+        measurements.add(1, measurements.getFirst());
+        measurements.add(measurements.getFirst());
+
+        // when
+        underTest.saveAll(measurements.subList(0, measurements.size() / 2));
+        underTest.saveAll(measurements.subList(measurements.size() / 2, measurements.size()));
+        underTest.save(createMeasurement(SIEDLCE_CITY_ID, "1.005", "99.99", "0.01", Instant.now()));
+
+        // then
+        assertThat(jdbcTemplate.queryForList(MONTHLY_STATS_SQL))
+                .isNotEmpty()
+                .isEqualTo(jdbcTemplate.queryForList(MONTHLY_STATS_FROM_MEASUREMENTS_SQL));
+    }
+
+    @Test
+    void shouldKeepSeriesInStepWithMeasurements() {
+        // given
+        var measurements = new ArrayList<Measurement>();
+        measurements.addAll(generateTestMeasurements(SIEDLCE_CITY_ID, new BigDecimal("23.1"), new BigDecimal("7.0"), new BigDecimal("0.34"), 3, true));
+        measurements.addAll(generateTestMeasurements(RADOM_CITY_ID, new BigDecimal("13.1"), new BigDecimal("12.4"), new BigDecimal("0.19"), 2));
+        Measurement first = measurements.getFirst();
+        // Same sensor and minute as an already saved measurement
+        measurements.add(new Measurement(Measurement.NO_ID, first.sensorId(), first.cityId(), first.pm10() + 100,
+                first.co() - 100, first.no2(), first.timestamp().plusSeconds(30)));
+
+        // when
+        underTest.saveAll(measurements.subList(0, measurements.size() / 2));
+        underTest.saveAll(measurements.subList(measurements.size() / 2, measurements.size()));
+        underTest.save(createMeasurement(SIEDLCE_CITY_ID, "1.005", "99.99", "0.01", Instant.now()));
+
+        // then
+        SERIES_TABLES.forEach((table, interval) -> assertThat(jdbcTemplate.queryForList(SERIES_SQL.formatted(table)))
+                .as(table)
+                .isNotEmpty()
+                .isEqualTo(jdbcTemplate.queryForList(SERIES_FROM_MEASUREMENTS_SQL.formatted(interval))));
+    }
+
+    @Test
+    void shouldJoinSpringManagedTransaction() {
+        // given
+        Integer countBefore = countMeasurements();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            underTest.save(createValidMeasurement());
+            underTest.saveAll(List.of(createValidMeasurement(), createValidMeasurement()));
+            status.setRollbackOnly();
+        });
+
+        // then
+        Integer countAfter = countMeasurements();
+        assertEquals(countBefore, countAfter);
+        assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, MONTHLY_STATS_TABLE_NAME));
+        SERIES_TABLES.keySet().forEach(table -> assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, table)));
+    }
+
     @Test
     void queryRisingCities_shouldReturnEmpty_whenUnexistingRegionIdIsUsed() {
         // given
@@ -94,12 +267,11 @@ class DuckDbMeasurementRepositoryIT {
         UUID unexistingRegionId = UUID.randomUUID();
 
         // when
-        List<String> actual1 = underTest.queryRisingCO5MCities(unexistingRegionId);
-        List<String> actual2 = underTest.queryRisingCO5MCities(unexistingRegionId);
+        Map<Pollutant, List<String>> actual = underTest.queryRising5MCities(unexistingRegionId, EnumSet.allOf(Pollutant.class));
 
         // then
-        assertThat(actual1).isEmpty();
-        assertThat(actual2).isEmpty();
+        assertThat(actual).containsOnlyKeys(Pollutant.values());
+        assertThat(actual.values()).allSatisfy(cities -> assertThat(cities).isEmpty());
     }
 
     @Test
@@ -114,12 +286,11 @@ class DuckDbMeasurementRepositoryIT {
         underTest.saveAll(measurements);
 
         // when
-        List<String> actual1 = underTest.queryRisingCO5MCities(MAZOWIECKIE_REGION_ID);
-        List<String> actual2 = underTest.queryRisingCO5MCities(MAZOWIECKIE_REGION_ID);
+        Map<Pollutant, List<String>> actual = underTest.queryRising5MCities(MAZOWIECKIE_REGION_ID, EnumSet.allOf(Pollutant.class));
 
         // then
-        assertThat(actual1).isEmpty();
-        assertThat(actual2).isEmpty();
+        assertThat(actual).containsOnlyKeys(Pollutant.values());
+        assertThat(actual.values()).allSatisfy(cities -> assertThat(cities).isEmpty());
     }
 
     @Test
@@ -135,12 +306,23 @@ class DuckDbMeasurementRepositoryIT {
         underTest.saveAll(measurements);
 
         // when
-        List<String> actual1 = underTest.queryRisingCO5MCities(MAZOWIECKIE_REGION_ID);
-        List<String> actual2 = underTest.queryRisingCO5MCities(MAZOWIECKIE_REGION_ID);
+        Map<Pollutant, List<String>> actual = underTest.queryRising5MCities(MAZOWIECKIE_REGION_ID, EnumSet.allOf(Pollutant.class));
 
         // then
-        assertThat(actual1).contains("Warszawa");
-        assertThat(actual2).contains("Warszawa");
+        assertThat(actual).containsOnlyKeys(Pollutant.values());
+        assertThat(actual.values()).allSatisfy(cities -> assertThat(cities).containsExactly("Warszawa"));
+    }
+
+    @Test
+    void queryRisingCities_shouldReturnOnlyChosenPollutants() {
+        // given
+        underTest.saveAll(generateTestMeasurements(WARSZAWA_CITY_ID, new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), 6, true));
+
+        // when
+        Map<Pollutant, List<String>> actual = underTest.queryRising5MCities(MAZOWIECKIE_REGION_ID, EnumSet.of(Pollutant.NO2));
+
+        // then
+        assertThat(actual).containsExactly(Map.entry(Pollutant.NO2, List.of("Warszawa")));
     }
 
     @Test
@@ -178,6 +360,46 @@ class DuckDbMeasurementRepositoryIT {
         assertThat(actual).hasValue(expected);
     }
 
+    @Test
+    void queryCitySeries_shouldMergeSensorsOfCityInEachBucket() {
+        // given
+        Instant start = Instant.parse("2025-03-10T10:15:00Z");
+        underTest.saveAll(List.of(
+                createMeasurement(WARSZAWA_CITY_ID, "10.00", "1.00", "5.00", start),
+                createMeasurement(WARSZAWA_CITY_ID, "20.00", "2.00", "5.00", start.plus(20, ChronoUnit.MINUTES)),
+                createMeasurement(WARSZAWA_CITY_ID, "40.00", "4.00", "5.00", start.plus(1, ChronoUnit.HOURS)),
+                createMeasurement(RADOM_CITY_ID, "99.99", "99.99", "99.99", start),
+                createMeasurement(WARSZAWA_CITY_ID, "99.99", "99.99", "99.99", start.plus(2, ChronoUnit.HOURS))));
+
+        // when
+        List<SeriesPointResponseDTO> actual = underTest.queryCitySeries(WARSZAWA_CITY_ID, start,
+                Instant.parse("2025-03-10T12:00:00Z"), SeriesResolution.HOUR);
+
+        // then
+        assertThat(actual).containsExactly(
+                new SeriesPointResponseDTO(Instant.parse("2025-03-10T10:00:00Z"), 2,
+                        new BigDecimal("5.0"), new BigDecimal("5.00"), new BigDecimal("5.00"),
+                        new BigDecimal("1.5"), new BigDecimal("2.00"), new BigDecimal("1.00"),
+                        new BigDecimal("15.0"), new BigDecimal("20.00"), new BigDecimal("10.00")),
+                new SeriesPointResponseDTO(Instant.parse("2025-03-10T11:00:00Z"), 1,
+                        new BigDecimal("5.0"), new BigDecimal("5.00"), new BigDecimal("5.00"),
+                        new BigDecimal("4.0"), new BigDecimal("4.00"), new BigDecimal("4.00"),
+                        new BigDecimal("40.0"), new BigDecimal("40.00"), new BigDecimal("40.00")));
+    }
+
+    @Test
+    void queryCitySeries_shouldReturnEmpty_whenNoMeasurementsInRange() {
+        // given
+        underTest.saveAll(List.of(createValidMeasurement()));
+
+        // when
+        List<SeriesPointResponseDTO> actual = underTest.queryCitySeries(SIEDLCE_CITY_ID,
+                Instant.now().minus(3, ChronoUnit.DAYS), Instant.now().minus(2, ChronoUnit.DAYS), SeriesResolution.DAY);
+
+        // then
+        assertThat(actual).isEmpty();
+    }
+
     @Test
     void generateMonthlyHighestPM10Report_shouldGenerateEmptyFile_whenNoDataForLastMonth(@TempDir Path tempDir) {
         // given
@@ -280,7 +502,7 @@ class DuckDbMeasurementRepositoryIT {
     }
 
     private static Measurement createMeasurement(UUID cityId, String pm10, String co, String no2, Instant timestamp) {
-        return new Measurement(null, UUID.randomUUID(), cityId, new BigDecimal(pm10), new BigDecimal(co), new BigDecimal(no2), timestamp);
+        return new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId, MeasurementValue.parse(pm10), MeasurementValue.parse(co), MeasurementValue.parse(no2), timestamp);
     }
 
 
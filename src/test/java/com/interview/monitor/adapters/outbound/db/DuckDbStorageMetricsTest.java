@@ -0,0 +1,60 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuckDbStorageMetricsTest {
+    @TempDir
+    Path directory;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void bindTo_shouldPublishSizesOfDatabaseAndWal() throws IOException {
+        // given
+        Path database = Files.write(directory.resolve("measurements.duckdb"), new byte[4096]);
+        Files.write(directory.resolve("measurements.duckdb.wal"), new byte[512]);
+        var underTest = new DuckDbStorageMetrics("jdbc:duckdb:" + database + "?threads=4");
+
+        // when
+        underTest.bindTo(meterRegistry);
+        System.gc();
+
+        // then
+        assertThat(meterRegistry.get("duckdb.database.size").gauge().value()).isEqualTo(4096);
+        assertThat(meterRegistry.get("duckdb.wal.size").gauge().value()).isEqualTo(512);
+    }
+
+    @Test
+    void bindTo_shouldPublishEmptyWal_whenWalIsCheckpointed() throws IOException {
+        // given
+        Path database = Files.write(directory.resolve("measurements.duckdb"), new byte[4096]);
+        var underTest = new DuckDbStorageMetrics("jdbc:duckdb:" + database);
+
+        // when
+        underTest.bindTo(meterRegistry);
+
+        // then
+        assertThat(meterRegistry.get("duckdb.wal.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void bindTo_shouldPublishNothing_whenDatabaseIsInMemory() {
+        // given
+        var underTest = new DuckDbStorageMetrics("jdbc:duckdb:");
+
+        // when
+        underTest.bindTo(meterRegistry);
+
+        // then
+        assertThat(meterRegistry.getMeters()).isEmpty();
+        assertThat(DuckDbStorageMetrics.databaseFileOf("jdbc:duckdb::memory:shared")).isEmpty();
+    }
+}
@@ -0,0 +1,98 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class DuckDbTransactionManagerTest {
+    @Mock
+    DataSource dataSource;
+    @Mock
+    Connection connection;
+
+    ExecutorService platformExecutor;
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        platformExecutor = Executors.newFixedThreadPool(2);
+        var connectionManager = new DuckDbConnectionManager(dataSource, platformExecutor);
+        transactionTemplate = new TransactionTemplate(new DuckDbTransactionManager(dataSource, connectionManager));
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.getAutoCommit()).willReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        platformExecutor.shutdown();
+    }
+
+    @Test
+    void commit_shouldEndTransactionOnPlatformThread_whenCalledFromVirtualThread() throws Exception {
+        // given
+        var endingThread = new AtomicReference<Thread>();
+        willAnswer(invocation -> {
+            endingThread.set(Thread.currentThread());
+            return null;
+        }).given(connection).commit();
+
+        // when
+        Thread.ofVirtual().start(() -> transactionTemplate.executeWithoutResult(status -> {
+        })).join();
+
+        // then
+        assertThat(endingThread.get()).isNotNull();
+        assertThat(endingThread.get().isVirtual()).isFalse();
+    }
+
+    @Test
+    void rollback_shouldEndTransactionOnPlatformThread_whenCalledFromVirtualThread() throws Exception {
+        // given
+        var endingThread = new AtomicReference<Thread>();
+        willAnswer(invocation -> {
+            endingThread.set(Thread.currentThread());
+            return null;
+        }).given(connection).rollback();
+
+        // when
+        Thread.ofVirtual().start(() -> transactionTemplate.executeWithoutResult(status -> status.setRollbackOnly()))
+                .join();
+
+        // then
+        assertThat(endingThread.get()).isNotNull();
+        assertThat(endingThread.get().isVirtual()).isFalse();
+    }
+
+    @Test
+    void commit_shouldEndTransactionOnCallingThread_whenCalledFromPlatformThread() throws Exception {
+        // given
+        var endingThread = new AtomicReference<Thread>();
+        willAnswer(invocation -> {
+            endingThread.set(Thread.currentThread());
+            return null;
+        }).given(connection).commit();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+        });
+
+        // then
+        assertThat(endingThread.get()).isSameAs(Thread.currentThread());
+    }
+}
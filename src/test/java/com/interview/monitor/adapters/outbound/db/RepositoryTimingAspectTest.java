@@ -0,0 +1,72 @@
+package com.interview.monitor.adapters.outbound.db;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.ports.outbound.CityRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class RepositoryTimingAspectTest {
+    @Mock
+    CityRepository cityRepository;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    CityRepository underTest;
+
+    @BeforeEach
+    void setUp() {
+        var proxyFactory = new AspectJProxyFactory(cityRepository);
+        proxyFactory.addInterface(CityRepository.class);
+        proxyFactory.addAspect(new RepositoryTimingAspect(meterRegistry));
+        underTest = proxyFactory.getProxy();
+    }
+
+    @Test
+    void time_shouldRecordEachCallByQuery() {
+        // given
+        given(cityRepository.findAll()).willReturn(List.of());
+
+        // when
+        underTest.findAll();
+        underTest.findAll();
+        underTest.upsertAll(List.of());
+
+        // then
+        assertThat(queryTimer("findAll", "SUCCESS").count()).isEqualTo(2);
+        assertThat(queryTimer("upsertAll", "SUCCESS").count()).isEqualTo(1);
+    }
+
+    @Test
+    void time_shouldRecordCallSeparately_whenItFails() {
+        // given
+        given(cityRepository.findAll()).willThrow(new DatastoreException("Database unavailable"));
+
+        // when
+        assertThatExceptionOfType(DatastoreException.class).isThrownBy(() -> underTest.findAll());
+
+        // then
+        assertThat(queryTimer("findAll", "ERROR").count()).isEqualTo(1);
+        assertThat(meterRegistry.find(RepositoryTimingAspect.QUERY_TIMER).tag("outcome", "SUCCESS").timer()).isNull();
+    }
+
+    private Timer queryTimer(String query, String outcome) {
+        return meterRegistry.get(RepositoryTimingAspect.QUERY_TIMER)
+                .tag("repository", "CityRepository")
+                .tag("query", query)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
@@ -3,10 +3,12 @@ package com.interview.monitor.adapters.outbound.rest;
 import com.interview.monitor.adapters.outbound.rest.dto.CityInfoListDTO;
 import com.interview.monitor.domain.exception.IntegrationException;
 import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.CityDirectoryVersion;
 import com.interview.monitor.domain.ports.outbound.CityInformationClient;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.restclient.test.autoconfigure.RestClientTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.RestClientException;
@@ -14,18 +16,28 @@ import org.wiremock.spring.EnableWireMock;
 import tools.jackson.databind.ObjectMapper;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.interview.monitor.testutils.TestConstants.MAZOWIECKIE_REGION_ID;
+import static com.interview.monitor.testutils.TestConstants.WARSZAWA_CITY_ID;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @EnableWireMock
-@RestClientTest(components = {CityInformationClient.class}, properties = {"integrations.city-information.base-url=http://localhost:${wiremock.server.port}"})
+@RestClientTest(components = {CityInformationClient.class}, properties = {
+        "integrations.city-information.base-url=http://localhost:${wiremock.server.port}",
+        "integrations.city-information.chunk-size=" + CityInformationRestClientTest.CHUNK_SIZE})
 class CityInformationRestClientTest {
     private static final String CITIES = "/cities";
     private static final int EXPECTED_RETRY = 5;
+    static final int CHUNK_SIZE = 3;
     public static final String CONTENT_TYPE = "Content-Type";
+    private static final String ETAG = "\"cities-20250227082344\"";
+    private static final String LAST_MODIFIED = "Thu, 27 Feb 2025 08:23:44 GMT";
 
     @Autowired
     CityInformationClient underTest;
@@ -41,7 +53,7 @@ class CityInformationRestClientTest {
 
         // when
         assertThatExceptionOfType(RestClientException.class)
-                .isThrownBy(() -> underTest.fetchFullCityInformation());
+                .isThrownBy(() -> underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}));
 
         //then
         verify(exactly(EXPECTED_RETRY), getRequestedFor(urlEqualTo(CITIES)));
@@ -58,7 +70,7 @@ class CityInformationRestClientTest {
 
         // when
         assertThatExceptionOfType(IntegrationException.class)
-                .isThrownBy(() -> underTest.fetchFullCityInformation());
+                .isThrownBy(() -> underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}));
     }
 
     @Test
@@ -69,15 +81,124 @@ class CityInformationRestClientTest {
 
         // when
         assertThatExceptionOfType(IntegrationException.class)
-                .isThrownBy(() -> underTest.fetchFullCityInformation());
+                .isThrownBy(() -> underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}));
     }
 
     @Test
     void shouldFetchFullCityInformation() {
+        // given
+        var chunks = new ArrayList<List<City>>();
+
+        // when
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunks::add);
+
+        //then
+        assertThat(actual).hasValueSatisfying(version -> assertEquals(LAST_MODIFIED, version.lastModified()));
+        assertThat(chunks).extracting(List::size).containsExactly(CHUNK_SIZE, 1);
+        assertThat(chunks.getLast()).containsExactly(new City(WARSZAWA_CITY_ID, "Warszawa", "Poland", "Mazowieckie", MAZOWIECKIE_REGION_ID));
+    }
+
+    @Test
+    void shouldSkipOtherFields_whenReadingCities() {
+        // given
+        stubFor(any(urlEqualTo(CITIES))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("""
+                                {"source": {"name": "dictionary", "tags": ["eu"]}, "cities": [
+                                    {"country": "Poland", "city": "Warszawa", "cityId": "%s", "region": "Mazowieckie", "regionId": "%s", "population": 1860000}
+                                ], "lastUpdate": "2025-02-27T08:23:44"}
+                                """.formatted(WARSZAWA_CITY_ID, MAZOWIECKIE_REGION_ID))));
+        var chunks = new ArrayList<List<City>>();
+
+        // when
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunks::add);
+
+        //then
+        assertThat(actual).isPresent();
+        assertThat(chunks).singleElement().satisfies(chunk -> assertThat(chunk).extracting(City::id).containsExactly(WARSZAWA_CITY_ID));
+    }
+
+    @Test
+    void shouldThrow_whenCityListContainsNull() {
+        // given
+        stubFor(any(urlEqualTo(CITIES))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("{\"cities\": [null]}")));
+
+        // when
+        assertThatExceptionOfType(IntegrationException.class)
+                .isThrownBy(() -> underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}));
+    }
+
+    @Test
+    void shouldThrow_whenMalformedCityListIsReturned() {
+        // given
+        stubFor(any(urlEqualTo(CITIES))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("{\"cities\": [{\"city\": \"Warszawa\"")));
+
+        // when
+        assertThatExceptionOfType(IntegrationException.class)
+                .isThrownBy(() -> underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}));
+    }
+
+    @Test
+    void shouldReturnNothing_whenFetchedVersionIsCurrent() {
+        // given
+        CityDirectoryVersion version = underTest.fetchFullCityInformation(CityDirectoryVersion.UNKNOWN, chunk -> {}).orElseThrow();
+        var chunks = new ArrayList<List<City>>();
+
+        // when
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(version, chunks::add);
+
+        //then
+        assertThat(actual).isEmpty();
+        assertThat(chunks).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNothing_whenKnownEtagIsCurrent() {
+        // when
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(new CityDirectoryVersion(ETAG, LAST_MODIFIED), chunk -> {});
+
+        //then
+        assertThat(actual).isEmpty();
+        verify(getRequestedFor(urlEqualTo(CITIES))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(ETAG))
+                .withHeader(HttpHeaders.IF_MODIFIED_SINCE, equalTo(LAST_MODIFIED)));
+    }
+
+    @Test
+    void shouldReturnNothing_whenNotModifiedSinceKnownVersion() {
+        // given
+        stubFor(get(urlEqualTo(CITIES))
+                .withHeader(HttpHeaders.IF_MODIFIED_SINCE, equalTo(LAST_MODIFIED))
+                .willReturn(aResponse().withStatus(HttpStatus.NOT_MODIFIED.value())));
+
+        // when
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(new CityDirectoryVersion(null, LAST_MODIFIED), chunk -> {});
+
+        //then
+        assertThat(actual).isEmpty();
+        verify(getRequestedFor(urlEqualTo(CITIES)).withoutHeader(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    void shouldFetchFullCityInformation_whenKnownEtagIsOutdated() {
+        // given
+        var chunks = new ArrayList<List<City>>();
+
         // when
-        List<City> actual = underTest.fetchFullCityInformation();
+        Optional<CityDirectoryVersion> actual = underTest.fetchFullCityInformation(new CityDirectoryVersion("\"cities-20250101000000\"", null), chunks::add);
 
         //then
-        assertEquals(4, actual.size());
+        assertThat(actual).isPresent();
+        assertThat(chunks).flatExtracting(chunk -> chunk).hasSize(4);
     }
-}
\ No newline at end of file
+}
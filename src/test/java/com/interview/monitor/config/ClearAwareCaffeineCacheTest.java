@@ -0,0 +1,51 @@
+package com.interview.monitor.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClearAwareCaffeineCacheTest {
+    private static final String KEY = "key";
+
+    ClearAwareCaffeineCache underTest = new ClearAwareCaffeineCache("cache", Caffeine.newBuilder().build(), true);
+
+    @Test
+    void put_shouldKeepValue_whenNotClearedSinceLookup() {
+        // given
+        underTest.get(KEY);
+
+        // when
+        underTest.put(KEY, "value");
+
+        // then
+        assertThat(underTest.get(KEY, String.class)).isEqualTo("value");
+    }
+
+    @Test
+    void put_shouldSkipValue_whenClearedSinceLookup() {
+        // given
+        underTest.get(KEY);
+        underTest.clear();
+
+        // when
+        underTest.put(KEY, "stale");
+
+        // then
+        assertThat(underTest.get(KEY)).isNull();
+    }
+
+    @Test
+    void put_shouldKeepValue_whenLookedUpAgainAfterClear() {
+        // given
+        underTest.get(KEY);
+        underTest.clear();
+        underTest.get(KEY);
+
+        // when
+        underTest.put(KEY, "value");
+
+        // then
+        assertThat(underTest.get(KEY, String.class)).isEqualTo("value");
+    }
+}
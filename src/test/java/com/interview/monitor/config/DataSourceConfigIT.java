@@ -0,0 +1,138 @@
+package com.interview.monitor.config;
+
+import com.interview.monitor.adapters.outbound.db.DuckDbConnectionManager;
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.model.ExportFormat;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.ports.outbound.MeasurementExporter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DataSourceConfigIT {
+    // Writes nothing, but is still a write for DuckDB
+    private static final String NO_OP_WRITE_SQL = "INSERT INTO cities SELECT * FROM cities WHERE false";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DuckDbConnectionManager connectionManager;
+
+    @Autowired
+    MeasurementExporter measurementExporter;
+
+    @Autowired
+    @Qualifier("readOnlyDataSource")
+    HikariDataSource readOnlyDataSource;
+
+    @Test
+    void readOnlyTransaction_shouldUseConnectionOfReadOnlyPool() {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        // when
+        Integer activeConnections = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT count(*) FROM cities", Long.class);
+            return activeReadOnlyConnections();
+        });
+
+        // then
+        assertThat(activeConnections).isEqualTo(1);
+    }
+
+    @Test
+    void readWriteTransaction_shouldNotUseConnectionOfReadOnlyPool() {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // when
+        Integer activeConnections = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT count(*) FROM cities", Long.class);
+            return activeReadOnlyConnections();
+        });
+
+        // then
+        assertThat(activeConnections).isZero();
+    }
+
+    @Test
+    void readOnlyTransaction_shouldRejectWrites() {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        // when & then
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(NO_OP_WRITE_SQL)))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("read-only");
+    }
+
+    @Test
+    void readOnlyTransaction_shouldRejectWritesOfUnwrappedDuckDbConnection() {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        // when & then
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> connectionManager.executeWithoutResult(
+                conn -> conn.createStatement().execute(NO_OP_WRITE_SQL))))
+                .isInstanceOf(DatastoreException.class)
+                .hasRootCauseMessage("TransactionContext Error: Cannot write to database \"test-db\" - transaction is launched in read-only mode");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExportFormat.class)
+    void readOnlyTransaction_shouldAllowExports(ExportFormat format) {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        var output = new ByteArrayOutputStream();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> measurementExporter.export(
+                new MeasurementExport(Instant.EPOCH, Instant.now(), null, format), output));
+
+        // then
+        assertThat(output.size()).isPositive();
+    }
+
+    @Test
+    void readWriteTransaction_shouldAllowWrites() {
+        // given
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // when
+        Integer updated = transactionTemplate.execute(status -> jdbcTemplate.update(NO_OP_WRITE_SQL));
+
+        // then
+        assertThat(updated).isZero();
+    }
+
+    private int activeReadOnlyConnections() {
+        // The pool is only started by its first connection
+        var pool = readOnlyDataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
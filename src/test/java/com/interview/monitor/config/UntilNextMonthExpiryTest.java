@@ -0,0 +1,55 @@
+package com.interview.monitor.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UntilNextMonthExpiryTest {
+    private static final ZoneId WARSAW = ZoneId.of("Europe/Warsaw");
+
+    @Test
+    void expireAfterCreate_shouldExpireAtStartOfNextMonth() {
+        // given
+        var clock = Clock.fixed(Instant.parse("2026-01-31T21:30:00Z"), WARSAW);
+        var underTest = new UntilNextMonthExpiry(clock);
+
+        // when
+        long actual = underTest.expireAfterCreate("key", "value", 0);
+
+        // then
+        assertThat(Duration.ofNanos(actual)).isEqualTo(Duration.ofMinutes(90));
+    }
+
+    @Test
+    void expireAfterUpdate_shouldExpireAtStartOfNextMonth_whenClocksChangeInBetween() {
+        // given
+        var clock = Clock.fixed(Instant.parse("2026-02-28T23:00:00Z"), WARSAW);
+        var underTest = new UntilNextMonthExpiry(clock);
+
+        // when
+        long actual = underTest.expireAfterUpdate("key", "value", 0, Duration.ofDays(10).toNanos());
+
+        // then
+        // Midnight of the 1st of March in Warsaw, clocks are moved forward by an hour during March
+        assertThat(Duration.ofNanos(actual)).isEqualTo(Duration.ofDays(31).minusHours(1));
+    }
+
+    @Test
+    void expireAfterRead_shouldKeepRemainingDuration() {
+        // given
+        var clock = Clock.fixed(Instant.parse("2026-01-15T12:00:00Z"), WARSAW);
+        var underTest = new UntilNextMonthExpiry(clock);
+        long remaining = Duration.ofHours(3).toNanos();
+
+        // when
+        long actual = underTest.expireAfterRead("key", "value", 0, remaining);
+
+        // then
+        assertThat(actual).isEqualTo(remaining);
+    }
+}
@@ -0,0 +1,58 @@
+package com.interview.monitor.domain.model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeasurementValueTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "23.1, 2310",
+            "0.39, 39",
+            "7, 700",
+            "7., 700",
+            ".5, 50",
+            "+1.25, 125",
+            "-1.25, -125",
+            "1.005, 101",
+            "1.0049, 100",
+            "-1.005, -101",
+            "99999999.99, 9999999999",
+            "0099999999.994, 9999999999"
+    })
+    void parse_shouldReturnHundredths_roundedHalfUp(String value, long expected) {
+        // when
+        long actual = MeasurementValue.parse(value);
+
+        // then
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual).isEqualTo(MeasurementValue.valueOf(new BigDecimal(value)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", ".", "1.2.3", "1e3", "12a", " 1"})
+    void parse_shouldFail_whenNotPlainDecimal(String value) {
+        // when & then
+        assertThatThrownBy(() -> MeasurementValue.parse(value)).isInstanceOf(NumberFormatException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"100000000", "99999999.995", "-100000000.00", "123456789012345678901234567890"})
+    void parse_shouldFail_whenValueDoesNotFitTheColumn(String value) {
+        // when & then
+        assertThatThrownBy(() -> MeasurementValue.parse(value)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2310, 23.10", "39, 0.39", "-125, -1.25", "0, 0.00"})
+    void toDecimal_shouldKeepTheColumnScale(long value, String expected) {
+        // when & then
+        assertThat(MeasurementValue.toDecimal(value)).isEqualTo(new BigDecimal(expected));
+    }
+}
@@ -0,0 +1,33 @@
+package com.interview.monitor.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeriesResolutionTest {
+    private static final Instant FROM = Instant.parse("2025-03-10T00:00:00Z");
+
+    @Test
+    void coarsestWithPoints_shouldPickDays_whenEnoughDaysInRange() {
+        // when & then
+        assertThat(SeriesResolution.coarsestWithPoints(FROM, FROM.plus(Duration.ofDays(365)), 100))
+                .isEqualTo(SeriesResolution.DAY);
+    }
+
+    @Test
+    void coarsestWithPoints_shouldPickHours_whenTooFewDaysInRange() {
+        // when & then
+        assertThat(SeriesResolution.coarsestWithPoints(FROM, FROM.plus(Duration.ofDays(7)), 100))
+                .isEqualTo(SeriesResolution.HOUR);
+    }
+
+    @Test
+    void coarsestWithPoints_shouldPickMinutes_whenTooFewPointsInAnyResolution() {
+        // when & then
+        assertThat(SeriesResolution.coarsestWithPoints(FROM, FROM.plus(Duration.ofMinutes(30)), 100))
+                .isEqualTo(SeriesResolution.MINUTE);
+    }
+}
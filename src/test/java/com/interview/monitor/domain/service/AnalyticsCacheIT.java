@@ -0,0 +1,56 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.ports.inbound.MeasurementService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.RISING_CITY_STATS_CACHE;
+import static com.interview.monitor.testutils.TestConstants.SIEDLCE_CITY_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AnalyticsCacheIT {
+    @Autowired
+    MeasurementService measurementService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void calculateRisingCityStats_shouldBeCachedUntilLateMeasurementArrives() {
+        // given
+        UUID regionId = UUID.randomUUID();
+        double hitsBefore = cacheGets("hit");
+        double missesBefore = cacheGets("miss");
+
+        // when
+        measurementService.calculateRisingCityStats(regionId);
+        measurementService.calculateRisingCityStats(regionId);
+        measurementService.saveAll(List.of(new Measurement(Measurement.NO_ID, UUID.randomUUID(), SIEDLCE_CITY_ID,
+                2310, 1240, 39,
+                Instant.now().minus(62, ChronoUnit.DAYS))));
+        measurementService.calculateRisingCityStats(regionId);
+
+        // then
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(1);
+        assertThat(cacheGets("miss") - missesBefore).isEqualTo(2);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", RISING_CITY_STATS_CACHE)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
@@ -0,0 +1,99 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.CitiesUpdatedEvent;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.RISING_CITY_STATS_CACHE;
+import static com.interview.monitor.domain.service.AnalyticsCacheInvalidator.WORST_NO2_CITIES_CACHE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalyticsCacheInvalidatorTest {
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2026, 3, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final Instant CURRENT_MONTH_START = Instant.parse("2026-03-01T00:00:00Z");
+    private static final String KEY = "key";
+
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(RISING_CITY_STATS_CACHE, WORST_NO2_CITIES_CACHE);
+
+    AnalyticsCacheInvalidator underTest = new AnalyticsCacheInvalidator(cacheManager, Clock.fixed(NOW.toInstant(), ZoneOffset.UTC));
+
+    @BeforeEach
+    void fillCaches() {
+        cacheManager.getCache(RISING_CITY_STATS_CACHE).put(KEY, "rising");
+        cacheManager.getCache(WORST_NO2_CITIES_CACHE).put(KEY, "worst");
+    }
+
+    @Test
+    void shouldKeepCaches_whenMeasurementsFromCurrentMonth() {
+        // when
+        underTest.onMeasurementsSaved(eventWithTimestamp(CURRENT_MONTH_START));
+
+        // then
+        assertCached(true, true);
+    }
+
+    @Test
+    void shouldClearBothCaches_whenMeasurementFromPreviousMonth() {
+        // when
+        underTest.onMeasurementsSaved(eventWithTimestamp(CURRENT_MONTH_START.minusSeconds(1)));
+
+        // then
+        assertCached(false, false);
+    }
+
+    @Test
+    void shouldClearRisingCityStatsOnly_whenMeasurementFromWithinLastFiveMonths() {
+        // when
+        underTest.onMeasurementsSaved(eventWithTimestamp(NOW.minusMonths(5).toInstant()));
+
+        // then
+        assertCached(false, true);
+    }
+
+    @Test
+    void shouldClearWorstNo2CitiesOnly_whenMeasurementFromSameMonthYearBefore() {
+        // when
+        underTest.onMeasurementsSaved(eventWithTimestamp(NOW.minusMonths(13).toInstant()));
+
+        // then
+        assertCached(true, false);
+    }
+
+    @Test
+    void shouldKeepCaches_whenMeasurementFromMonthNotUsedByAnyQuery() {
+        // when
+        underTest.onMeasurementsSaved(eventWithTimestamp(NOW.minusMonths(8).toInstant()));
+
+        // then
+        assertCached(true, true);
+    }
+
+    @Test
+    void shouldClearBothCaches_whenCitiesUpdated() {
+        // when
+        underTest.onCitiesUpdated(new CitiesUpdatedEvent(1));
+
+        // then
+        assertCached(false, false);
+    }
+
+    private void assertCached(boolean risingCityStats, boolean worstNo2Cities) {
+        assertThat(cacheManager.getCache(RISING_CITY_STATS_CACHE).get(KEY) != null).isEqualTo(risingCityStats);
+        assertThat(cacheManager.getCache(WORST_NO2_CITIES_CACHE).get(KEY) != null).isEqualTo(worstNo2Cities);
+    }
+
+    private static MeasurementsSavedEvent eventWithTimestamp(Instant timestamp) {
+        return new MeasurementsSavedEvent(List.of(new Measurement(Measurement.NO_ID, UUID.randomUUID(), UUID.randomUUID(),
+                2310, 1240, 39, timestamp)));
+    }
+}
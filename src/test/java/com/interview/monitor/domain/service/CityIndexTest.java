@@ -0,0 +1,70 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.ports.outbound.CityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class CityIndexTest {
+    private static final UUID REGION_ID = UUID.randomUUID();
+    private static final City CITY_1 = new City(UUID.randomUUID(), "City1", "Country1", "Region1", REGION_ID);
+    private static final City CITY_2 = new City(UUID.randomUUID(), "City2", "Country1", "Region1", REGION_ID);
+    private static final City CITY_3 = new City(UUID.randomUUID(), "City3", "Country1", "Region2", UUID.randomUUID());
+
+    @Mock
+    CityRepository cityRepository;
+
+    CityIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CityIndex(cityRepository);
+    }
+
+    @Test
+    void contains_shouldKnowNoCities_whenNotStarted() {
+        // when & then
+        assertThat(underTest.contains(CITY_1.id())).isFalse();
+        assertThat(underTest.cityIdsOfRegion(REGION_ID)).isEmpty();
+    }
+
+    @Test
+    void start_shouldLoadCities() {
+        // given
+        given(cityRepository.findAll()).willReturn(List.of(CITY_1, CITY_2, CITY_3));
+
+        // when
+        underTest.start();
+
+        // then
+        assertThat(underTest.contains(CITY_1.id())).isTrue();
+        assertThat(underTest.contains(UUID.randomUUID())).isFalse();
+        assertThat(underTest.cityIdsOfRegion(REGION_ID)).containsExactly(CITY_1.id(), CITY_2.id());
+        assertThat(underTest.cityIdsOfRegion(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void rebuild_shouldReplaceCities() {
+        // given
+        given(cityRepository.findAll()).willReturn(List.of(CITY_1, CITY_2), List.of(CITY_2, CITY_3));
+        underTest.start();
+
+        // when
+        underTest.rebuild();
+
+        // then
+        assertThat(underTest.contains(CITY_1.id())).isFalse();
+        assertThat(underTest.contains(CITY_3.id())).isTrue();
+        assertThat(underTest.cityIdsOfRegion(REGION_ID)).containsExactly(CITY_2.id());
+    }
+}
@@ -1,6 +1,9 @@
 package com.interview.monitor.domain.service;
 
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.model.CitiesUpdatedEvent;
 import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.CityDirectoryVersion;
 import com.interview.monitor.domain.ports.outbound.CityInformationClient;
 import com.interview.monitor.domain.ports.outbound.CityRepository;
 import org.junit.jupiter.api.Test;
@@ -8,19 +11,33 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class CityServiceImplTest {
+    private static final CityDirectoryVersion VERSION = new CityDirectoryVersion("\"v1\"", "Thu, 27 Feb 2025 08:23:44 GMT");
+
     @Mock
     CityInformationClient cityInformationClient;
     @Mock
     CityRepository cityRepository;
+    @Mock
+    CityIndex cityIndex;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     CityServiceImpl underTest;
@@ -28,18 +45,81 @@ class CityServiceImplTest {
     @Test
     void shouldRefreshCityInformation() {
         // given
-        var cities = List.of(
+        var firstChunk = List.of(
                 new City(UUID.randomUUID(), "City1", "Country1", "Region1", UUID.randomUUID()),
-                new City(UUID.randomUUID(), "City2", "Country2", "Region2", UUID.randomUUID()),
-                new City(UUID.randomUUID(), "City3", "Country3", "Region3", UUID.randomUUID())
+                new City(UUID.randomUUID(), "City2", "Country2", "Region2", UUID.randomUUID())
         );
-        given(cityInformationClient.fetchFullCityInformation()).willReturn(cities);
+        var secondChunk = List.of(new City(UUID.randomUUID(), "City3", "Country3", "Region3", UUID.randomUUID()));
+        givenDirectory(CityDirectoryVersion.UNKNOWN, firstChunk, secondChunk);
+        given(cityRepository.upsertAll(firstChunk)).willReturn(2);
+        given(cityRepository.upsertAll(secondChunk)).willReturn(1);
+
+        // when
+        underTest.refreshCityInformation();
+
+        // then
+        verify(cityRepository).upsertAll(firstChunk);
+        verify(cityRepository).upsertAll(secondChunk);
+        verify(cityIndex).rebuild();
+        verify(eventPublisher).publishEvent(new CitiesUpdatedEvent(3));
+    }
+
+    @Test
+    void shouldNotPublishEvent_whenNoCityChanged() {
+        // given
+        var cities = List.of(new City(UUID.randomUUID(), "City1", "Country1", "Region1", UUID.randomUUID()));
+        givenDirectory(CityDirectoryVersion.UNKNOWN, cities);
+        given(cityRepository.upsertAll(cities)).willReturn(0);
+
+        // when
+        underTest.refreshCityInformation();
+
+        // then
+        verify(cityIndex).rebuild();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void shouldPassAppliedVersion_whenRefreshingAgain() {
+        // given
+        var cities = List.of(new City(UUID.randomUUID(), "City1", "Country1", "Region1", UUID.randomUUID()));
+        givenDirectory(CityDirectoryVersion.UNKNOWN, cities);
+        given(cityInformationClient.fetchFullCityInformation(eq(VERSION), any())).willReturn(Optional.empty());
+        underTest.refreshCityInformation();
 
         // when
         underTest.refreshCityInformation();
 
         // then
-        verify(cityInformationClient).fetchFullCityInformation();
-        verify(cityRepository).upsertAll(cities);
+        verify(cityInformationClient).fetchFullCityInformation(eq(VERSION), any());
+        verify(cityRepository, times(1)).upsertAll(any());
+        verify(cityIndex, times(1)).rebuild();
+    }
+
+    @Test
+    void shouldNotApplyVersion_whenUpsertFails() {
+        // given
+        var cities = List.of(new City(UUID.randomUUID(), "City1", "Country1", "Region1", UUID.randomUUID()));
+        givenDirectory(CityDirectoryVersion.UNKNOWN, cities);
+        given(cityRepository.upsertAll(cities)).willThrow(new DatastoreException("Database unavailable"));
+        assertThatExceptionOfType(DatastoreException.class).isThrownBy(() -> underTest.refreshCityInformation());
+
+        // when
+        assertThatExceptionOfType(DatastoreException.class).isThrownBy(() -> underTest.refreshCityInformation());
+
+        // then
+        verify(cityInformationClient, times(2)).fetchFullCityInformation(eq(CityDirectoryVersion.UNKNOWN), any());
+        verifyNoInteractions(cityIndex);
+    }
+
+    @SafeVarargs
+    private void givenDirectory(CityDirectoryVersion knownVersion, List<City>... chunks) {
+        given(cityInformationClient.fetchFullCityInformation(eq(knownVersion), any())).willAnswer(invocation -> {
+            Consumer<List<City>> chunkConsumer = invocation.getArgument(1);
+            for (List<City> chunk : chunks) {
+                chunkConsumer.accept(chunk);
+            }
+            return Optional.of(VERSION);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.domain.model.City;
+import com.interview.monitor.domain.model.LastHourWindow;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.ports.inbound.MeasurementService;
+import com.interview.monitor.domain.ports.outbound.CityRepository;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LastHourCityStatsAggregatorIT {
+    @Autowired
+    CityRepository cityRepository;
+
+    @Autowired
+    MeasurementRepository measurementRepository;
+
+    @Autowired
+    MeasurementService measurementService;
+
+    @Autowired
+    LastHourCityStatsAggregator underTest;
+
+    UUID cityId;
+
+    @BeforeEach
+    void createCity() {
+        // A separate city for each test, other tests clear the measurements table behind the aggregator's back
+        cityId = UUID.randomUUID();
+        cityRepository.upsertAll(List.of(new City(cityId, "City", "Country", "Region", UUID.randomUUID())));
+    }
+
+    @Test
+    void shouldMatchDatabaseStats_whenMeasurementsSavedThroughService() {
+        // given
+        List<Measurement> measurements = generateMeasurements(500);
+
+        // when
+        measurementService.saveAll(measurements);
+
+        // then
+        assertThat(underTest.statsLastHour(cityId)).isPresent()
+                .isEqualTo(measurementRepository.queryCityStatsLastHour(cityId));
+    }
+
+    @Test
+    void shouldMatchDatabaseStats_whenWarmedUpFromDatabase() {
+        // given
+        measurementRepository.saveAll(generateMeasurements(500));
+
+        // when
+        underTest.warmUp();
+
+        // then
+        assertThat(underTest.statsLastHour(cityId)).isPresent()
+                .isEqualTo(measurementRepository.queryCityStatsLastHour(cityId));
+    }
+
+    @Test
+    void shouldMatchDatabaseStats_atEdgesOfWindow() {
+        // given
+        var window = LastHourWindow.at(Instant.now());
+        var oldestMinute = createMeasurement(1_000, window.from().plusSeconds(1));
+        var beforeWindow = createMeasurement(99_999, window.from().minusSeconds(1));
+        var ahead = createMeasurement(2_000, window.until().minusSeconds(1));
+        var afterWindow = createMeasurement(99_999, window.until().plusSeconds(1));
+
+        // when
+        measurementService.saveAll(List.of(oldestMinute, beforeWindow, ahead, afterWindow));
+
+        // then
+        var expected = new CityStatsResponseDTO(
+                new BigDecimal("15.0"), new BigDecimal("20.00"), new BigDecimal("10.00"),
+                new BigDecimal("15.0"), new BigDecimal("20.00"), new BigDecimal("10.00"),
+                new BigDecimal("15.0"), new BigDecimal("20.00"), new BigDecimal("10.00"));
+        assertThat(measurementRepository.queryCityStatsLastHour(cityId)).hasValue(expected);
+        assertThat(underTest.statsLastHour(cityId)).hasValue(expected);
+    }
+
+    private List<Measurement> generateMeasurements(int count) {
+        var random = ThreadLocalRandom.current();
+        var now = Instant.now();
+        var measurements = new ArrayList<Measurement>(count);
+        for (int i = 0; i < count; i++) {
+            // Far enough from the start of the window for both sides to agree on what is in it
+            var timestamp = now.minusSeconds(random.nextLong(-60, 55 * 60));
+            measurements.add(new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId,
+                    random.nextLong(100_000),
+                    random.nextLong(100_000),
+                    random.nextLong(100_000),
+                    timestamp));
+        }
+        return measurements;
+    }
+
+    private Measurement createMeasurement(long value, Instant timestamp) {
+        return new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId, value, value, value, timestamp);
+    }
+}
@@ -0,0 +1,183 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
+import com.interview.monitor.domain.model.CityMinuteStats;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import com.interview.monitor.domain.model.ValueStats;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class LastHourCityStatsAggregatorTest {
+    private static final Instant NOW = Instant.parse("2026-03-10T12:30:30Z");
+    private static final UUID CITY_ID = UUID.randomUUID();
+
+    @Mock
+    MeasurementRepository measurementRepository;
+
+    MutableClock clock = new MutableClock(NOW);
+
+    LastHourCityStatsAggregator underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new LastHourCityStatsAggregator(measurementRepository, clock);
+    }
+
+    @Test
+    void statsLastHour_shouldReturnEmpty_whenNoMeasurementsSaved() {
+        // when
+        Optional<CityStatsResponseDTO> actual = underTest.statsLastHour(CITY_ID);
+
+        // then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void statsLastHour_shouldAggregateSavedMeasurements() {
+        // given
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(
+                createMeasurement("10.00", "1.5", "0.1", NOW.minusSeconds(1800)),
+                createMeasurement("50.00", "2.5", "0.2", NOW.minusSeconds(60)),
+                createMeasurement("99.99", "3.5", "0.3", NOW))));
+
+        // when
+        Optional<CityStatsResponseDTO> actual = underTest.statsLastHour(CITY_ID);
+
+        // then
+        var expected = new CityStatsResponseDTO(
+                new BigDecimal("0.2"), new BigDecimal("0.30"), new BigDecimal("0.10"),
+                new BigDecimal("2.5"), new BigDecimal("3.50"), new BigDecimal("1.50"),
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"));
+        assertThat(actual).hasValue(expected);
+    }
+
+    @Test
+    void statsLastHour_shouldReturnStatsOfCitiesWithMeasurements_whenManyCitiesRequested() {
+        // given
+        UUID otherCityId = UUID.randomUUID();
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(
+                createMeasurement("10.00", "1.5", "0.1", NOW.minusSeconds(60)),
+                createMeasurement(otherCityId, "20.00", "2.5", "0.2", NOW))));
+
+        // when
+        List<CityStatsLastHourResponseDTO> actual = underTest.statsLastHour(List.of(otherCityId, UUID.randomUUID(), CITY_ID, CITY_ID)).toList();
+
+        // then
+        assertThat(actual).containsExactly(
+                new CityStatsLastHourResponseDTO(otherCityId, underTest.statsLastHour(otherCityId).orElseThrow()),
+                new CityStatsLastHourResponseDTO(CITY_ID, underTest.statsLastHour(CITY_ID).orElseThrow()));
+    }
+
+    @Test
+    void statsLastHour_shouldForgetMeasurements_whenTheyLeaveTheWindow() {
+        // given
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(
+                createMeasurement("10.00", "10.00", "10.00", NOW.minusSeconds(1800)),
+                createMeasurement("20.00", "20.00", "20.00", NOW))));
+
+        // when
+        clock.advance(Duration.ofMinutes(45));
+        Optional<CityStatsResponseDTO> afterFirstExpired = underTest.statsLastHour(CITY_ID);
+        clock.advance(Duration.ofMinutes(30));
+        Optional<CityStatsResponseDTO> afterAllExpired = underTest.statsLastHour(CITY_ID);
+
+        // then
+        assertThat(afterFirstExpired).map(CityStatsResponseDTO::minPM10LastHour).hasValue(new BigDecimal("20.00"));
+        assertThat(afterAllExpired).isEmpty();
+    }
+
+    @Test
+    void onMeasurementsSaved_shouldIgnoreMeasurementsOutsideTheWindow() {
+        // given
+        var tooOld = createMeasurement("10.00", "10.00", "10.00", NOW.minus(Duration.ofMinutes(62)));
+        var tooFarAhead = createMeasurement("10.00", "10.00", "10.00", NOW.plus(Duration.ofMinutes(10)));
+
+        // when
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(tooOld, tooFarAhead)));
+
+        // then
+        assertThat(underTest.statsLastHour(CITY_ID)).isEmpty();
+    }
+
+    @Test
+    void warmUp_shouldLoadMinuteStatsFromRepository() {
+        // given
+        var minute = NOW.minusSeconds(600);
+        given(measurementRepository.queryCityMinuteStatsSince(any())).willReturn(List.of(new CityMinuteStats(CITY_ID, minute,
+                new ValueStats(1000, 3000, 4000, 2),
+                new ValueStats(100, 300, 400, 2),
+                new ValueStats(10, 30, 40, 2))));
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(
+                createMeasurement("99.99", "99.99", "99.99", NOW))));
+
+        // when
+        underTest.warmUp();
+        underTest.onMeasurementsSaved(new MeasurementsSavedEvent(List.of(
+                createMeasurement("50.00", "5.00", "0.50", minute))));
+
+        // then
+        var expected = new CityStatsResponseDTO(
+                new BigDecimal("0.3"), new BigDecimal("0.50"), new BigDecimal("0.10"),
+                new BigDecimal("3.0"), new BigDecimal("5.00"), new BigDecimal("1.00"),
+                new BigDecimal("30.0"), new BigDecimal("50.00"), new BigDecimal("10.00"));
+        assertThat(underTest.statsLastHour(CITY_ID)).hasValue(expected);
+    }
+
+    private static Measurement createMeasurement(String pm10, String co, String no2, Instant timestamp) {
+        return createMeasurement(CITY_ID, pm10, co, no2, timestamp);
+    }
+
+    private static Measurement createMeasurement(UUID cityId, String pm10, String co, String no2, Instant timestamp) {
+        return new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId,
+                MeasurementValue.parse(pm10), MeasurementValue.parse(co), MeasurementValue.parse(no2), timestamp);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
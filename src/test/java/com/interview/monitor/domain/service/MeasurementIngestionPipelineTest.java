@@ -0,0 +1,468 @@
+package com.interview.monitor.domain.service;
+
+import com.interview.monitor.domain.exception.DatastoreException;
+import com.interview.monitor.domain.exception.IngestionOverloadedException;
+import com.interview.monitor.domain.exception.InvalidDataException;
+import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementsSavedEvent;
+import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
+import com.interview.monitor.domain.service.MeasurementIngestionPipeline.DurabilityMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class MeasurementIngestionPipelineTest {
+    private static final int BATCH_SIZE = 10;
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(50);
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
+    private static final int RECENT_KEYS = 100;
+
+    @Mock
+    MeasurementRepository measurementRepository;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    MeasurementIngestionPipeline underTest;
+
+    @AfterEach
+    void tearDown() {
+        if (underTest.isRunning()) {
+            underTest.stop();
+        }
+    }
+
+    @Test
+    void submit_shouldWriteQueuedMeasurementsInBatches() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        givenRepositorySavesAll();
+        List<Measurement> measurements = IntStream.range(0, 25).mapToObj(i -> createValidMeasurement()).toList();
+
+        // when
+        measurements.forEach(underTest::submit);
+        underTest.stop();
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Measurement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(measurementRepository, atLeastOnce()).saveAll(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(BATCH_SIZE));
+        assertThat(captor.getAllValues().stream().flatMap(List::stream)).containsExactlyElementsOf(measurements);
+        assertThat(meterRegistry.get("ingestion.flush.latency").timer().count()).isPositive();
+    }
+
+    @Test
+    void submit_shouldThrow_whenFlusherIsInterrupted() throws InterruptedException {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        Thread flusher = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("measurement-flusher"))
+                .findFirst()
+                .orElseThrow();
+
+        // when
+        flusher.interrupt();
+        flusher.join();
+
+        // then
+        assertThatExceptionOfType(DatastoreException.class)
+                .isThrownBy(() -> underTest.submit(createValidMeasurement()));
+        verify(measurementRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void submit_shouldReturnAfterFlush_whenAckOnFlush() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        givenRepositorySavesAll();
+        var measurement = createValidMeasurement();
+
+        // when
+        underTest.submit(measurement);
+
+        // then
+        verify(measurementRepository).saveAll(List.of(measurement));
+        verify(eventPublisher).publishEvent(new MeasurementsSavedEvent(List.of(measurement)));
+    }
+
+    @Test
+    void submit_shouldDropDuplicateOfRecentlySubmittedMeasurement() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        givenRepositorySavesAll();
+        var measurement = createValidMeasurement();
+        var retried = new Measurement(Measurement.NO_ID, measurement.sensorId(), measurement.cityId(),
+                measurement.pm10(), measurement.co(), measurement.no2(), measurement.timestamp());
+
+        // when
+        underTest.submit(measurement);
+        underTest.submit(retried);
+
+        // then
+        verify(measurementRepository).saveAll(List.of(measurement));
+        verifyNoMoreInteractions(measurementRepository);
+        assertThat(meterRegistry.get("ingestion.measurements.duplicates").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void submit_shouldAcknowledgeDuplicate_onlyAfterOriginalIsWritten() throws InterruptedException {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        var writeStarted = new CountDownLatch(1);
+        var writeInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writeStarted.countDown();
+            writeInProgress.await();
+            return invocation.getArgument(0);
+        }).given(measurementRepository).saveAll(anyList());
+        var measurement = createValidMeasurement();
+
+        // when
+        Thread original = Thread.ofPlatform().start(() -> underTest.submit(measurement));
+        writeStarted.await();
+        Thread retry = Thread.ofPlatform().start(() -> underTest.submit(measurement));
+        while (meterRegistry.get("ingestion.measurements.duplicates").counter().count() < 1) {
+            Thread.sleep(1);
+        }
+
+        // then
+        assertThat(retry.isAlive()).isTrue();
+        writeInProgress.countDown();
+        original.join();
+        retry.join();
+        verify(measurementRepository).saveAll(List.of(measurement));
+    }
+
+    @Test
+    void submit_shouldFailDuplicate_whenOriginalFails() throws InterruptedException {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        var writeStarted = new CountDownLatch(1);
+        var writeInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writeStarted.countDown();
+            writeInProgress.await();
+            throw new DatastoreException("Problems occurred when accessing database");
+        }).given(measurementRepository).saveAll(anyList());
+        var measurement = createValidMeasurement();
+        var retryFailure = new AtomicReference<Throwable>();
+
+        // when
+        Thread original = Thread.ofPlatform().start(() -> catchThrowable(() -> underTest.submit(measurement)));
+        writeStarted.await();
+        Thread retry = Thread.ofPlatform()
+                .start(() -> retryFailure.set(catchThrowable(() -> underTest.submit(measurement))));
+        while (meterRegistry.get("ingestion.measurements.duplicates").counter().count() < 1) {
+            Thread.sleep(1);
+        }
+        writeInProgress.countDown();
+        original.join();
+        retry.join();
+
+        // then
+        assertThat(retryFailure.get()).isInstanceOf(DatastoreException.class);
+        verify(measurementRepository).saveAll(List.of(measurement));
+    }
+
+    @Test
+    void submit_shouldNotPublishEvent_whenWholeBatchWasAlreadySaved() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        given(measurementRepository.saveAll(anyList())).willReturn(List.of());
+
+        // when
+        underTest.submit(createValidMeasurement());
+
+        // then
+        verify(eventPublisher, never()).publishEvent(any());
+        assertThat(meterRegistry.get("ingestion.measurements.duplicates").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void submit_shouldPropagateWriteFailure_whenAckOnFlush() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_FLUSH);
+        underTest.start();
+        willThrow(new DatastoreException("Problems occurred when accessing database"))
+                .given(measurementRepository).saveAll(anyList());
+
+        var measurement = createValidMeasurement();
+
+        // when & then
+        assertThatExceptionOfType(DatastoreException.class)
+                .isThrownBy(() -> underTest.submit(measurement));
+        // Accepted again when the sensor retries
+        assertThatExceptionOfType(DatastoreException.class)
+                .isThrownBy(() -> underTest.submit(measurement));
+    }
+
+    @Test
+    void submit_shouldThrow_whenQueueIsFull() {
+        // given
+        underTest = createPipeline(1, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        var writeInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writeInProgress.await();
+            return invocation.getArgument(0);
+        }).given(measurementRepository).saveAll(anyList());
+
+        // when & then
+        try {
+            assertThatExceptionOfType(IngestionOverloadedException.class)
+                    .isThrownBy(() -> {
+                        // At most one full batch can be in flight and one more measurement can wait in the queue
+                        for (int i = 0; i < BATCH_SIZE + 2; i++) {
+                            underTest.submit(createValidMeasurement());
+                        }
+                    });
+        } finally {
+            writeInProgress.countDown();
+        }
+    }
+
+    @Test
+    void submitAll_shouldReturnAfterFlush_whenAckOnEnqueue() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        givenRepositorySavesAll();
+        List<Measurement> measurements = IntStream.range(0, 5).mapToObj(i -> createValidMeasurement()).toList();
+
+        // when
+        underTest.submitAll(measurements);
+
+        // then
+        verify(measurementRepository).saveAll(measurements);
+        verify(eventPublisher).publishEvent(new MeasurementsSavedEvent(measurements));
+    }
+
+    @Test
+    void submitAll_shouldWriteMeasurementsOfConcurrentCallersInOneBatch() throws InterruptedException {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        var firstWriteStarted = new CountDownLatch(1);
+        var firstWriteInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            firstWriteStarted.countDown();
+            firstWriteInProgress.await();
+            return invocation.getArgument(0);
+        }).given(measurementRepository).saveAll(anyList());
+        var first = createValidMeasurement();
+        List<Measurement> measurements1 = IntStream.range(0, 3).mapToObj(i -> createValidMeasurement()).toList();
+        List<Measurement> measurements2 = IntStream.range(0, 3).mapToObj(i -> createValidMeasurement()).toList();
+
+        // when
+        underTest.submit(first);
+        firstWriteStarted.await();
+        Thread caller1 = Thread.ofPlatform().start(() -> underTest.submitAll(measurements1));
+        Thread caller2 = Thread.ofPlatform().start(() -> underTest.submitAll(measurements2));
+        // Both callers wait in the queue while the writer is busy with the first measurement
+        while (meterRegistry.get("ingestion.queue.depth").gauge().value() < 6) {
+            Thread.sleep(1);
+        }
+        firstWriteInProgress.countDown();
+        caller1.join();
+        caller2.join();
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Measurement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(measurementRepository, times(2)).saveAll(captor.capture());
+        assertThat(captor.getAllValues().get(0)).containsExactly(first);
+        assertThat(captor.getAllValues().get(1)).containsExactlyInAnyOrderElementsOf(
+                Stream.concat(measurements1.stream(), measurements2.stream()).toList());
+    }
+
+    @Test
+    void submitAll_shouldFailOnlyCallerOfFailedMeasurement_whenWrittenInOneBatch() throws InterruptedException {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        var firstWriteStarted = new CountDownLatch(1);
+        var firstWriteInProgress = new CountDownLatch(1);
+        var invalid = createValidMeasurement();
+        willAnswer(invocation -> {
+            firstWriteStarted.countDown();
+            firstWriteInProgress.await();
+            List<Measurement> batch = invocation.getArgument(0);
+            if (batch.contains(invalid)) {
+                throw new InvalidDataException("Data was rejected by database", new RuntimeException());
+            }
+            return batch;
+        }).given(measurementRepository).saveAll(anyList());
+        List<Measurement> measurements1 = IntStream.range(0, 3).mapToObj(i -> createValidMeasurement()).toList();
+        List<Measurement> measurements2 = List.of(createValidMeasurement(), invalid, createValidMeasurement());
+        var failure1 = new AtomicReference<Throwable>();
+        var failure2 = new AtomicReference<Throwable>();
+
+        // when
+        underTest.submit(createValidMeasurement());
+        firstWriteStarted.await();
+        Thread caller1 = Thread.ofPlatform()
+                .start(() -> failure1.set(catchThrowable(() -> underTest.submitAll(measurements1))));
+        Thread caller2 = Thread.ofPlatform()
+                .start(() -> failure2.set(catchThrowable(() -> underTest.submitAll(measurements2))));
+        while (meterRegistry.get("ingestion.queue.depth").gauge().value() < 6) {
+            Thread.sleep(1);
+        }
+        firstWriteInProgress.countDown();
+        caller1.join();
+        caller2.join();
+
+        // then
+        assertThat(failure1.get()).isNull();
+        assertThat(failure2.get()).isInstanceOf(InvalidDataException.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Measurement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(measurementRepository, atLeastOnce()).saveAll(captor.capture());
+        List<Measurement> written = captor.getAllValues().stream()
+                .filter(batch -> !batch.contains(invalid))
+                .flatMap(List::stream)
+                .toList();
+        assertThat(written).containsAll(measurements1).contains(measurements2.get(0), measurements2.get(2));
+    }
+
+    @Test
+    void submitAll_shouldFailWholeBatchWithoutSplitting_whenDatabaseFails() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+        underTest.start();
+        given(measurementRepository.saveAll(anyList()))
+                .willThrow(new DatastoreException("Problems occurred when accessing database"));
+        List<Measurement> measurements = IntStream.range(0, BATCH_SIZE).mapToObj(i -> createValidMeasurement()).toList();
+
+        // when & then
+        assertThatExceptionOfType(DatastoreException.class).isThrownBy(() -> underTest.submitAll(measurements));
+        verify(measurementRepository).saveAll(measurements);
+        verifyNoMoreInteractions(measurementRepository);
+    }
+
+    @Test
+    void submitAll_shouldBoundRetries_whenEveryMeasurementIsInvalid() throws InterruptedException {
+        // given
+        int batchSize = 100;
+        underTest = new MeasurementIngestionPipeline(1000, batchSize, FLUSH_INTERVAL, DurabilityMode.ACK_ON_ENQUEUE,
+                FLUSH_TIMEOUT, RECENT_KEYS, measurementRepository, TransactionOperations.withoutTransaction(),
+                eventPublisher, meterRegistry);
+        underTest.start();
+        var first = createValidMeasurement();
+        var firstWriteStarted = new CountDownLatch(1);
+        var firstWriteInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            List<Measurement> batch = invocation.getArgument(0);
+            if (batch.contains(first)) {
+                firstWriteStarted.countDown();
+                firstWriteInProgress.await();
+                return batch;
+            }
+            throw new InvalidDataException("Data was rejected by database", new RuntimeException());
+        }).given(measurementRepository).saveAll(anyList());
+        List<Measurement> measurements = IntStream.range(0, batchSize).mapToObj(i -> createValidMeasurement()).toList();
+        var failure = new AtomicReference<Throwable>();
+
+        // when
+        underTest.submit(first);
+        firstWriteStarted.await();
+        Thread caller = Thread.ofPlatform()
+                .start(() -> failure.set(catchThrowable(() -> underTest.submitAll(measurements))));
+        // The whole batch waits in the queue while the writer is busy with the first measurement
+        while (meterRegistry.get("ingestion.queue.depth").gauge().value() < batchSize) {
+            Thread.sleep(1);
+        }
+        firstWriteInProgress.countDown();
+        caller.join();
+
+        // then
+        assertThat(failure.get()).isInstanceOf(InvalidDataException.class);
+        verify(measurementRepository, atMost(2 + MeasurementIngestionPipeline.MAX_RETRIED_FLUSHES)).saveAll(anyList());
+    }
+
+    @Test
+    void submit_shouldThrow_whenNotWrittenInTime() {
+        // given
+        underTest = new MeasurementIngestionPipeline(100, BATCH_SIZE, FLUSH_INTERVAL, DurabilityMode.ACK_ON_FLUSH,
+                Duration.ofMillis(100), RECENT_KEYS, measurementRepository,
+                TransactionOperations.withoutTransaction(), eventPublisher, meterRegistry);
+        underTest.start();
+        var writeInProgress = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writeInProgress.await();
+            return invocation.getArgument(0);
+        }).given(measurementRepository).saveAll(anyList());
+
+        // when & then
+        try {
+            assertThatExceptionOfType(DatastoreException.class)
+                    .isThrownBy(() -> underTest.submit(createValidMeasurement()))
+                    .withMessageContaining("not saved within");
+        } finally {
+            writeInProgress.countDown();
+        }
+    }
+
+    @Test
+    void submit_shouldThrow_whenNotRunning() {
+        // given
+        underTest = createPipeline(100, DurabilityMode.ACK_ON_ENQUEUE);
+
+        // when & then
+        assertThatExceptionOfType(DatastoreException.class)
+                .isThrownBy(() -> underTest.submit(createValidMeasurement()));
+    }
+
+    private MeasurementIngestionPipeline createPipeline(int queueCapacity, DurabilityMode durabilityMode) {
+        return new MeasurementIngestionPipeline(queueCapacity, BATCH_SIZE, FLUSH_INTERVAL, durabilityMode,
+                FLUSH_TIMEOUT, RECENT_KEYS, measurementRepository, TransactionOperations.withoutTransaction(), eventPublisher,
+                meterRegistry);
+    }
+
+    private void givenRepositorySavesAll() {
+        given(measurementRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private static Measurement createValidMeasurement() {
+        return new Measurement(Measurement.NO_ID, UUID.randomUUID(), UUID.randomUUID(), 2310, 1240, 39, Instant.now());
+    }
+}
@@ -1,8 +1,18 @@
 package com.interview.monitor.domain.service;
 
+import com.interview.monitor.adapters.inbound.rest.dto.CityStatsLastHourResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.CityStatsResponseDTO;
 import com.interview.monitor.adapters.inbound.rest.dto.RisingCityStatsResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesPointResponseDTO;
+import com.interview.monitor.adapters.inbound.rest.dto.SeriesResponseDTO;
+import com.interview.monitor.domain.exception.ValidationException;
+import com.interview.monitor.domain.model.ExportFormat;
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementExport;
+import com.interview.monitor.domain.model.Pollutant;
+import com.interview.monitor.domain.model.SeriesResolution;
+import com.interview.monitor.domain.ports.outbound.MeasurementArchive;
+import com.interview.monitor.domain.ports.outbound.MeasurementExporter;
 import com.interview.monitor.domain.ports.outbound.MeasurementRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,47 +20,95 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static com.interview.monitor.testutils.TestConstants.RADOM_CITY_ID;
 import static com.interview.monitor.testutils.TestConstants.WARSZAWA_CITY_ID;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class MeasurementServiceImplTest {
     private static final String REPORTS_DIR = "/reports/";
     private static final String FILE_PREFIX = "WORST_CITIES_PM10_";
-    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int HOT_MONTHS = 2;
+    private static final int MAX_SERIES_POINTS = 10_000;
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-03-10T12:00:00Z"), ZoneOffset.UTC);
 
     @Mock
     MeasurementRepository measurementRepository;
+    @Mock
+    CityIndex cityIndex;
+    @Mock
+    MeasurementArchive measurementArchive;
+    @Mock
+    MeasurementExporter measurementExporter;
+    @Mock
+    MeasurementIngestionPipeline ingestionPipeline;
+    @Mock
+    LastHourCityStatsAggregator lastHourCityStatsAggregator;
 
     MeasurementServiceImpl underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new MeasurementServiceImpl(REPORTS_DIR, measurementRepository);
+        underTest = new MeasurementServiceImpl(REPORTS_DIR, HOT_MONTHS, MAX_SERIES_POINTS, measurementRepository, cityIndex,
+                measurementArchive, measurementExporter, ingestionPipeline, lastHourCityStatsAggregator, CLOCK);
     }
 
     @Test
-    void save_shouldCallMeasurementRepository() {
+    void save_shouldSubmitToIngestionPipeline() {
         // given
         var measurement = createValidMeasurement();
+        given(cityIndex.contains(measurement.cityId())).willReturn(true);
 
         // when
         underTest.save(measurement);
 
         // then
-        verify(measurementRepository).save(measurement);
+        verify(ingestionPipeline).submit(measurement);
+    }
+
+    @Test
+    void save_shouldRejectMeasurementOfUnknownCity() {
+        // given
+        var measurement = createValidMeasurement();
+        given(cityIndex.contains(measurement.cityId())).willReturn(false);
+
+        // when & then
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> underTest.save(measurement));
+        verifyNoInteractions(ingestionPipeline);
+    }
+
+    @Test
+    void saveAll_shouldSubmitToIngestionPipeline() {
+        // given
+        var measurements = List.of(createValidMeasurement(), createValidMeasurement());
+
+        // when
+        underTest.saveAll(measurements);
+
+        // then
+        verify(ingestionPipeline).submitAll(measurements);
+        verifyNoInteractions(measurementRepository);
     }
 
     @Test
@@ -58,9 +116,9 @@ class MeasurementServiceImplTest {
         // given
         UUID regionId = UUID.randomUUID();
         List<String> risingCO5MCities = List.of(WARSZAWA_CITY_ID.toString());
-        given(measurementRepository.queryRisingCO5MCities(regionId)).willReturn(risingCO5MCities);
         List<String> risingPM105MCities = List.of(RADOM_CITY_ID.toString());
-        given(measurementRepository.queryRisingPM105MCities(regionId)).willReturn(risingPM105MCities);
+        given(measurementRepository.queryRising5MCities(regionId, EnumSet.of(Pollutant.CO, Pollutant.PM10)))
+                .willReturn(Map.of(Pollutant.CO, risingCO5MCities, Pollutant.PM10, risingPM105MCities));
 
         // when
         RisingCityStatsResponseDTO actual = underTest.calculateRisingCityStats(regionId);
@@ -69,19 +127,18 @@ class MeasurementServiceImplTest {
         var expected = new RisingCityStatsResponseDTO(risingCO5MCities, risingPM105MCities);
         assertEquals(expected, actual);
 
-        verify(measurementRepository).queryRisingCO5MCities(regionId);
-        verify(measurementRepository).queryRisingPM105MCities(regionId);
+        verify(measurementRepository).queryRising5MCities(regionId, EnumSet.of(Pollutant.CO, Pollutant.PM10));
     }
 
     @Test
-    void calculateCityStatsLastHour_shouldCallMeasurementRepository() {
+    void calculateCityStatsLastHour_shouldCallLastHourAggregator() {
         // given
         UUID cityId = UUID.randomUUID();
         var cityStats = new CityStatsResponseDTO(
                 new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
                 new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
                 new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"));
-        given(measurementRepository.queryCityStatsLastHour(cityId)).willReturn(Optional.of(cityStats));
+        given(lastHourCityStatsAggregator.statsLastHour(cityId)).willReturn(Optional.of(cityStats));
 
         // when
         Optional<CityStatsResponseDTO> actual = underTest.calculateCityStatsLastHour(cityId);
@@ -90,10 +147,89 @@ class MeasurementServiceImplTest {
         assertThat(actual).hasValue(cityStats);
     }
 
+    @Test
+    void calculateRegionStatsLastHour_shouldCallLastHourAggregatorWithCitiesOfRegion() {
+        // given
+        UUID regionId = UUID.randomUUID();
+        List<UUID> cityIds = List.of(WARSZAWA_CITY_ID, RADOM_CITY_ID);
+        given(cityIndex.cityIdsOfRegion(regionId)).willReturn(cityIds);
+        var cityStats = new CityStatsLastHourResponseDTO(WARSZAWA_CITY_ID, new CityStatsResponseDTO(
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00"),
+                new BigDecimal("53.33"), new BigDecimal("99.99"), new BigDecimal("10.00")));
+        given(lastHourCityStatsAggregator.statsLastHour(cityIds)).willReturn(Stream.of(cityStats));
+
+        // when
+        Stream<CityStatsLastHourResponseDTO> actual = underTest.calculateRegionStatsLastHour(regionId);
+
+        // then
+        assertThat(actual).containsExactly(cityStats);
+    }
+
+    @Test
+    void getCitySeries_shouldPickResolution_whenNotChosen() {
+        // given
+        UUID cityId = UUID.randomUUID();
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofDays(7));
+        List<SeriesPointResponseDTO> points = List.of(new SeriesPointResponseDTO(from, 1,
+                new BigDecimal("0.39"), new BigDecimal("0.39"), new BigDecimal("0.39"),
+                new BigDecimal("12.4"), new BigDecimal("12.40"), new BigDecimal("12.40"),
+                new BigDecimal("23.1"), new BigDecimal("23.10"), new BigDecimal("23.10")));
+        given(measurementRepository.queryCitySeries(cityId, from, to, SeriesResolution.HOUR)).willReturn(points);
+
+        // when
+        SeriesResponseDTO actual = underTest.getCitySeries(cityId, from, to, null, 100);
+
+        // then
+        assertThat(actual).isEqualTo(new SeriesResponseDTO(cityId, SeriesResolution.HOUR, points));
+    }
+
+    @Test
+    void getCitySeries_shouldUseChosenResolution() {
+        // given
+        UUID cityId = UUID.randomUUID();
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofDays(7));
+        given(measurementRepository.queryCitySeries(cityId, from, to, SeriesResolution.DAY)).willReturn(List.of());
+
+        // when
+        SeriesResponseDTO actual = underTest.getCitySeries(cityId, from, to, SeriesResolution.DAY, 100);
+
+        // then
+        assertThat(actual).isEqualTo(new SeriesResponseDTO(cityId, SeriesResolution.DAY, List.of()));
+    }
+
+    @Test
+    void getCitySeries_shouldThrow_whenTooManyPointsRequested() {
+        // given
+        UUID cityId = UUID.randomUUID();
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofDays(7));
+
+        // when then
+        assertThatExceptionOfType(ValidationException.class)
+                .isThrownBy(() -> underTest.getCitySeries(cityId, from, to, null, MAX_SERIES_POINTS + 1));
+        verify(measurementRepository, never()).queryCitySeries(any(), any(), any(), any());
+    }
+
+    @Test
+    void getCitySeries_shouldThrow_whenRangeHoldsTooManyPoints() {
+        // given
+        UUID cityId = UUID.randomUUID();
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofDays(30));
+
+        // when then
+        assertThatExceptionOfType(ValidationException.class)
+                .isThrownBy(() -> underTest.getCitySeries(cityId, from, to, SeriesResolution.MINUTE, 100));
+        verify(measurementRepository, never()).queryCitySeries(any(), any(), any(), any());
+    }
+
     @Test
     void generateMonthlyHighestPM10Report_shouldCallRepository() {
         // given
-        String expectedFileName = FILE_PREFIX + LocalDate.now().minusMonths(1).format(FILE_NAME_FORMATTER) + ".csv";
+        String expectedFileName = FILE_PREFIX + "202602.csv";
 
         // when
         underTest.generateMonthlyHighestPM10Report();
@@ -102,6 +238,22 @@ class MeasurementServiceImplTest {
         verify(measurementRepository).generateMonthlyHighestPM10Report(REPORTS_DIR + expectedFileName);
     }
 
+    @Test
+    void archiveCompletedMonths_shouldArchiveAllButHotMonths() {
+        // when
+        underTest.archiveCompletedMonths();
+
+        // then
+        verify(measurementArchive).archiveBefore(YearMonth.of(2026, 2));
+    }
+
+    @Test
+    void shouldRejectConfiguration_whenNoHotMonths() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new MeasurementServiceImpl(REPORTS_DIR, 0, MAX_SERIES_POINTS, measurementRepository, cityIndex,
+                        measurementArchive, measurementExporter, ingestionPipeline, lastHourCityStatsAggregator, CLOCK));
+    }
+
     @Test
     void getWorstNo2CitiesYearToYear_shouldCallRepository() {
         underTest.getWorstNo2CitiesYearToYear();
@@ -109,8 +261,33 @@ class MeasurementServiceImplTest {
         verify(measurementRepository).queryWorstNo2CitiesYearToYear();
     }
 
+    @Test
+    void exportWorstNo2CitiesYearToYear_shouldCallExporter() {
+        // given
+        var output = new ByteArrayOutputStream();
+
+        // when
+        underTest.exportWorstNo2CitiesYearToYear(output);
+
+        // then
+        verify(measurementExporter).exportWorstNo2CitiesYearToYear(output);
+    }
+
+    @Test
+    void exportMeasurements_shouldCallExporter() {
+        // given
+        var export = new MeasurementExport(Instant.now().minusSeconds(3600), Instant.now(), WARSZAWA_CITY_ID, ExportFormat.CSV);
+        var output = new ByteArrayOutputStream();
+
+        // when
+        underTest.exportMeasurements(export, output);
+
+        // then
+        verify(measurementExporter).export(export, output);
+    }
+
     private static Measurement createValidMeasurement() {
-        return new Measurement(null, UUID.randomUUID(), UUID.randomUUID(),
-                new BigDecimal("23.1"), new BigDecimal("12.4"), new BigDecimal("0.39"), Instant.now());
+        return new Measurement(Measurement.NO_ID, UUID.randomUUID(), UUID.randomUUID(),
+                2310, 1240, 39, Instant.now());
     }
 }
\ No newline at end of file
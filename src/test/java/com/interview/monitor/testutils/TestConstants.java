@@ -8,5 +8,8 @@ public class TestConstants {
     public static final UUID RADOM_CITY_ID = UUID.fromString("cecbc276-87b1-4800-bdce-2d4d5d23c4f5");
     public static final UUID PLOCK_CITY_ID = UUID.fromString("f0518be9-2658-444c-b632-8da6aff3cff6");
     public static final UUID SIEDLCE_CITY_ID = UUID.fromString("d79c1fce-bba5-4c97-b01a-b3edb8a9e636");
+    // Every table written together with the measurements, cleared between tests
+    public static final String[] MEASUREMENT_TABLES = {
+            "measurements", "city_monthly_stats", "measurements_1m", "measurements_1h", "measurements_1d"};
 
 }
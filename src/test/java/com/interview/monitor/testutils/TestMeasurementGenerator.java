@@ -1,6 +1,7 @@
 package com.interview.monitor.testutils;
 
 import com.interview.monitor.domain.model.Measurement;
+import com.interview.monitor.domain.model.MeasurementValue;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -26,8 +27,8 @@ public class TestMeasurementGenerator {
                 co = co.add(new BigDecimal("1.0"));
                 no2 = no2.add(new BigDecimal("1.0"));
             }
-            measurements.add(new Measurement(null, UUID.randomUUID(), cityId, pm10, co, no2, next.atStartOfDay().toInstant(ZoneOffset.UTC)));
-            measurements.add(new Measurement(null, UUID.randomUUID(), cityId, pm10, co, no2, next.atStartOfDay().plusHours(8).toInstant(ZoneOffset.UTC)));
+            measurements.add(new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId, MeasurementValue.valueOf(pm10), MeasurementValue.valueOf(co), MeasurementValue.valueOf(no2), next.atStartOfDay().toInstant(ZoneOffset.UTC)));
+            measurements.add(new Measurement(Measurement.NO_ID, UUID.randomUUID(), cityId, MeasurementValue.valueOf(pm10), MeasurementValue.valueOf(co), MeasurementValue.valueOf(no2), next.atStartOfDay().plusHours(8).toInstant(ZoneOffset.UTC)));
         }
         return measurements;
     }